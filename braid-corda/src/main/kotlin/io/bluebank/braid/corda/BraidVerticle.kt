@@ -20,6 +20,7 @@ import io.bluebank.braid.corda.router.Routers
 import io.bluebank.braid.core.http.setupAllowAnyCORS
 import io.bluebank.braid.core.http.setupOptionsMethod
 import io.bluebank.braid.core.http.withCompatibleWebsockets
+import io.bluebank.braid.core.http.withCompression
 import io.bluebank.braid.core.logging.loggerFor
 import io.vertx.core.AbstractVerticle
 import io.vertx.core.Future
@@ -89,7 +90,11 @@ class BraidVerticle(
   }
 
   private fun setupWebserver(router: Router, startFuture: Future<Void>) {
-    vertx.createHttpServer(config.httpServerOptions.withCompatibleWebsockets())
+    val serverOptions = config.httpServerOptions.withCompatibleWebsockets()
+    config.restConfig?.takeIf { it.compressionEnabled }?.let {
+      serverOptions.withCompression(it.compressionLevel)
+    }
+    vertx.createHttpServer(serverOptions)
       .requestHandler(router)
       .listen(config.port) {
         if (it.succeeded()) {
@@ -16,14 +16,17 @@
 package io.bluebank.braid.corda
 
 import io.bluebank.braid.corda.services.CordaFlowServiceExecutor
+import io.bluebank.braid.corda.services.NetworkMapReplica
 import io.bluebank.braid.corda.services.SimpleNetworkMapServiceImpl
 import io.bluebank.braid.corda.services.adapters.toCordaServicesAdapter
+import io.bluebank.braid.corda.services.vault.VaultTracker
 import io.bluebank.braid.core.http.end
 import io.bluebank.braid.core.jsonrpc.JsonRPCMounter
 import io.bluebank.braid.core.jsonrpc.JsonRPCRequest
 import io.bluebank.braid.core.jsonrpc.JsonRPCResponse
 import io.bluebank.braid.core.logging.loggerFor
 import io.bluebank.braid.core.meta.ServiceDescriptor
+import io.bluebank.braid.core.ratelimit.RateLimiter
 import io.bluebank.braid.core.meta.defaultServiceEndpoint
 import io.bluebank.braid.core.security.AuthenticatedSocket
 import io.bluebank.braid.core.service.ConcreteServiceExecutor
@@ -52,7 +55,8 @@ class CordaSockJSHandler private constructor(
     private val log = loggerFor<CordaSockJSHandler>()
     private val REGISTERED_HANDLERS = mapOf(
       "network" to this::createNetworkMapService,
-      "flows" to this::createFlowService
+      "flows" to this::createFlowService,
+      "vault" to this::createVaultService
     )
 
     fun setupSockJSHandler(
@@ -124,26 +128,36 @@ class CordaSockJSHandler private constructor(
       services: AppServiceHub,
       @Suppress("UNUSED_PARAMETER") config: BraidConfig
     ): ServiceExecutor =
-      ConcreteServiceExecutor(SimpleNetworkMapServiceImpl(services.toCordaServicesAdapter()))
+      ConcreteServiceExecutor(
+        SimpleNetworkMapServiceImpl(NetworkMapReplica(services.toCordaServicesAdapter()))
+      )
 
     private fun createFlowService(
       services: AppServiceHub,
       config: BraidConfig
     ): ServiceExecutor =
       CordaFlowServiceExecutor(services.toCordaServicesAdapter(), config)
+
+    private fun createVaultService(
+      services: AppServiceHub,
+      @Suppress("UNUSED_PARAMETER") config: BraidConfig
+    ): ServiceExecutor =
+      ConcreteServiceExecutor(VaultTracker.create(services))
   }
 
   private val authProvider = config.authConstructor?.invoke(vertx)
   private val serviceMap =
     REGISTERED_HANDLERS.map { it.key to it.value(serviceHub, config) }.toMap() +
       config.services.map { it.key to ConcreteServiceExecutor(it.value) }.toMap()
+  private val rateLimiters =
+    config.restConfig?.rateLimits?.mapValues { RateLimiter(it.value) } ?: emptyMap()
   private val pathRegEx = Regex("${config.rootPath.replace("/", "\\/")}([^\\/]+).*")
 
   override fun handle(socket: SockJSSocket) {
     val serviceName = pathRegEx.matchEntire(socket.uri())?.groupValues?.get(1) ?: ""
     val service = serviceMap[serviceName]
     if (service != null) {
-      handleKnownService(socket, authProvider, service)
+      handleKnownService(socket, authProvider, service, rateLimiters[serviceName])
     } else {
       handleUnknownService(socket, serviceName)
     }
@@ -163,12 +177,14 @@ class CordaSockJSHandler private constructor(
   private fun handleKnownService(
     socket: SockJSSocket,
     authProvider: AuthProvider?,
-    service: ServiceExecutor
+    service: ServiceExecutor,
+    rateLimiter: RateLimiter?
   ) {
     val sockWrapper = createSocketAdapter(socket, authProvider)
     val rpcSocket = TypedSocket.create<JsonRPCRequest, JsonRPCResponse>()
     sockWrapper.addListener(rpcSocket)
-    val mount = JsonRPCMounter(service, vertx)
+    val userName = config.restConfig?.rateLimitUserName ?: RateLimiter.Companion::userNameOf
+    val mount = JsonRPCMounter(service, vertx, rateLimiter, userName)
     rpcSocket.addListener(mount)
   }
 
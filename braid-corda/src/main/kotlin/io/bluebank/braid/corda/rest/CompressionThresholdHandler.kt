@@ -0,0 +1,43 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.netty.handler.codec.http.HttpHeaderNames.CONTENT_ENCODING
+import io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH
+import io.netty.handler.codec.http.HttpHeaderValues.IDENTITY
+import io.vertx.core.Handler
+import io.vertx.ext.web.RoutingContext
+
+/**
+ * Opts small responses out of HTTP compression.
+ *
+ * Just before the headers of a response are written, any response with a `Content-Length`
+ * below [threshold] bytes is marked with the `identity` content encoding, which the
+ * server's compressor leaves untouched. Responses of unknown length are still compressed.
+ */
+class CompressionThresholdHandler(private val threshold: Int) : Handler<RoutingContext> {
+
+  override fun handle(context: RoutingContext) {
+    context.addHeadersEndHandler {
+      val headers = context.response().headers()
+      val length = headers.get(CONTENT_LENGTH)?.toLongOrNull()
+      if (length != null && length < threshold && !headers.contains(CONTENT_ENCODING)) {
+        headers.set(CONTENT_ENCODING, IDENTITY)
+      }
+    }
+    context.next()
+  }
+}
@@ -36,7 +36,8 @@ class DocsHandlerFactory(
           swaggerInfo = config.swaggerInfo,
           debugMode = config.debugMode,
           basePath = "${config.hostAndPortUri}/$path",
-          auth = getV3SecurityType()
+          auth = getV3SecurityType(),
+          cache = config.openApiCache
         )
       }
       else -> error("Unknown OpenAPI version ${config.openApiVersion}")
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+/**
+ * Where a REST handler is invoked
+ */
+enum class ExecutionPolicy {
+  /**
+   * directly on the Vert.x event loop - only for handlers that never block
+   */
+  EventLoop,
+  /**
+   * on the bounded REST worker pool, with the result written back from the event loop
+   */
+  Worker
+}
@@ -36,3 +36,16 @@ internal fun String.vertxPathParams(): List<String> {
   }.toList()
 }
 
+
+/**
+ * substitutes [values], in order, for the path parameters of this vertx path
+ */
+internal fun String.withPathParams(values: List<String>): String {
+  val remaining = values.iterator()
+  return Paths.PATH_PARAMS_RE.replace(this) {
+    require(remaining.hasNext()) { "too few values $values for path $this" }
+    remaining.next()
+  }.also {
+    require(!remaining.hasNext()) { "too many values $values for path $this" }
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.bluebank.braid.core.logging.loggerFor
+import io.netty.handler.codec.http.HttpHeaderNames.*
+import io.netty.handler.codec.http.HttpHeaderValues.GZIP
+import io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED
+import io.vertx.core.Handler
+import io.vertx.core.Vertx
+import io.vertx.core.http.impl.MimeMapping
+import io.vertx.ext.web.RoutingContext
+import io.vertx.ext.web.handler.StaticHandler
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.GZIPOutputStream
+
+/**
+ * Serves the static assets under [webRoot] from gzip variants that are built once, when
+ * the handler is created.
+ *
+ * The gzipped files are written to a temporary directory and sent with
+ * [io.vertx.core.http.HttpServerResponse.sendFile] so that plain-text connections transfer
+ * them zero-copy. Clients that don't accept gzip, and assets that don't shrink when
+ * compressed, are served by a regular [StaticHandler]. Both paths set a long-lived
+ * `Cache-Control` of [maxAgeSeconds].
+ *
+ * The constructor does blocking file I/O and should be called off the event loop.
+ */
+class PrecompressedStaticHandler(
+  vertx: Vertx,
+  private val webRoot: String,
+  private val mountPath: String,
+  private val compressionLevel: Int,
+  private val maxAgeSeconds: Long
+) : Handler<RoutingContext> {
+
+  companion object {
+    private val log = loggerFor<PrecompressedStaticHandler>()
+    private const val INDEX_PAGE = "index.html"
+  }
+
+  private class Asset(val path: String, val contentType: String, val etag: String)
+
+  private val fallback = StaticHandler.create(webRoot).setMaxAgeSeconds(maxAgeSeconds)
+  private val cacheControl = "public, max-age=$maxAgeSeconds"
+  private val assets: Map<String, Asset> = try {
+    precompress(vertx).also {
+      log.info("precompressed ${it.size} static assets from $webRoot")
+    }
+  } catch (err: Throwable) {
+    log.warn("failed to precompress static assets in $webRoot - serving them uncompressed", err)
+    emptyMap()
+  }
+
+  override fun handle(context: RoutingContext) {
+    val asset = when {
+      acceptsGzip(context) -> assets[relativePath(context)]
+      else -> null
+    }
+    if (asset == null) {
+      fallback.handle(context)
+      return
+    }
+    val response = context.response()
+      .putHeader(VARY, ACCEPT_ENCODING)
+      .putHeader(CACHE_CONTROL, cacheControl)
+      .putHeader(ETAG, asset.etag)
+    if (context.request().getHeader(IF_NONE_MATCH) == asset.etag) {
+      response.setStatusCode(NOT_MODIFIED.code()).end()
+    } else {
+      response
+        .putHeader(CONTENT_TYPE, asset.contentType)
+        .putHeader(CONTENT_ENCODING, GZIP)
+        .sendFile(asset.path)
+    }
+  }
+
+  private fun acceptsGzip(context: RoutingContext): Boolean {
+    return context.request().getHeader(ACCEPT_ENCODING)?.contains(GZIP, true) ?: false
+  }
+
+  private fun relativePath(context: RoutingContext): String {
+    val path = context.normalisedPath().removePrefix(mountPath).trimStart('/')
+    return when {
+      path.isEmpty() || path.endsWith('/') -> path + INDEX_PAGE
+      else -> path
+    }
+  }
+
+  private fun precompress(vertx: Vertx): Map<String, Asset> {
+    // vertx resolves classpath directories (including those inside jars) to real files
+    val root = vertx.fileSystem().readDirBlocking(webRoot).firstOrNull()
+      ?.let { File(it).parentFile } ?: return emptyMap()
+    val target = Files.createTempDirectory("braid-static-").toFile().apply { deleteOnExit() }
+    return root.walkTopDown()
+      .filter { it.isFile }
+      .mapNotNull { source ->
+        val relative = source.relativeTo(root).invariantSeparatorsPath
+        val compressed = File(target, "$relative.gz")
+        compressed.parentFile.mkdirs()
+        gzip(source, compressed)
+        compressed.deleteOnExit()
+        when {
+          compressed.length() < source.length() -> relative to Asset(
+            compressed.absolutePath,
+            contentType(source.name),
+            "\"${source.length()}-${source.lastModified()}-gz\""
+          )
+          else -> null
+        }
+      }
+      .toMap()
+  }
+
+  private fun gzip(source: File, target: File) {
+    source.inputStream().use { input ->
+      object : GZIPOutputStream(target.outputStream()) {
+        init {
+          def.setLevel(compressionLevel)
+        }
+      }.use { input.copyTo(it) }
+    }
+  }
+
+  private fun contentType(fileName: String): String {
+    val mimeType = MimeMapping.getMimeTypeForFilename(fileName) ?: "application/octet-stream"
+    return when {
+      mimeType.startsWith("text") -> "$mimeType;charset=UTF-8"
+      else -> mimeType
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.bluebank.braid.core.http.end
+import io.bluebank.braid.core.ratelimit.RateLimitExceededException
+import io.bluebank.braid.core.ratelimit.RateLimiter
+import io.netty.handler.codec.http.HttpHeaderNames.RETRY_AFTER
+import io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS
+import io.vertx.core.Handler
+import io.vertx.ext.auth.User
+import io.vertx.ext.web.RoutingContext
+
+/**
+ * Applies [rateLimiter] to the calls to [operation], keyed by the authenticated user or,
+ * for anonymous calls, by the remote host. Refused calls end with `429 Too Many Requests`
+ * and a `Retry-After` header.
+ */
+class RateLimitHandler(
+  private val rateLimiter: RateLimiter,
+  private val operation: String,
+  private val userName: (User) -> String?
+) : Handler<RoutingContext> {
+
+  override fun handle(context: RoutingContext) {
+    if (admit(context)) context.next()
+  }
+
+  /**
+   * @return true if the call may proceed, otherwise false, having ended the response
+   */
+  fun admit(context: RoutingContext): Boolean {
+    val caller = context.user()?.let(userName) ?: context.request().remoteAddress()?.host()
+    val retryAfterSeconds = rateLimiter.tryAcquire(caller, operation)
+    if (retryAfterSeconds == 0L) return true
+    context.response()
+      .putHeader(RETRY_AFTER, retryAfterSeconds.toString())
+      .end(RateLimitExceededException(retryAfterSeconds), TOO_MANY_REQUESTS.code())
+    return false
+  }
+}
@@ -15,7 +15,11 @@
  */
 package io.bluebank.braid.corda.rest
 
+import io.bluebank.braid.corda.rest.docs.v3.OpenAPICache
+import io.bluebank.braid.core.ratelimit.RateLimit
+import io.bluebank.braid.core.ratelimit.RateLimiter
 import io.vertx.ext.auth.AuthProvider
+import io.vertx.ext.auth.User
 import io.vertx.ext.web.Router
 import java.net.URI
 
@@ -30,6 +34,16 @@ RestConfig(
   val authSchema: AuthSchema = DEFAULT_AUTH_SCHEMA,
   internal val authProvider: AuthProvider? = DEFAULT_AUTH_PROVIDER,
   val debugMode: Boolean = false,
+  val compressionEnabled: Boolean = false,
+  val compressionLevel: Int = DEFAULT_COMPRESSION_LEVEL,
+  val compressionThreshold: Int = DEFAULT_COMPRESSION_THRESHOLD,
+  val staticMaxAgeSeconds: Long = DEFAULT_STATIC_MAX_AGE_SECONDS,
+  val executionPolicy: ExecutionPolicy = DEFAULT_EXECUTION_POLICY,
+  val workerPoolSize: Int = DEFAULT_WORKER_POOL_SIZE,
+  val maxWorkerExecuteTimeSeconds: Long = DEFAULT_MAX_WORKER_EXECUTE_TIME_SECONDS,
+  val rateLimits: Map<String, RateLimit> = emptyMap(),
+  val rateLimitUserName: (User) -> String? = RateLimiter.Companion::userNameOf,
+  val openApiCache: OpenAPICache? = null,
   val pathsInit: (RestMounter.(Router) -> Unit) = {}
 ) {
 
@@ -39,6 +53,12 @@ RestConfig(
     const val DEFAULT_SWAGGER_PATH = "/"
     val DEFAULT_AUTH_PROVIDER: AuthProvider? = null
     val DEFAULT_AUTH_SCHEMA = AuthSchema.None
+    const val DEFAULT_COMPRESSION_LEVEL = 6
+    const val DEFAULT_COMPRESSION_THRESHOLD = 1024
+    const val DEFAULT_STATIC_MAX_AGE_SECONDS = 7L * 24 * 60 * 60
+    val DEFAULT_EXECUTION_POLICY = ExecutionPolicy.Worker
+    const val DEFAULT_WORKER_POOL_SIZE = 20
+    const val DEFAULT_MAX_WORKER_EXECUTE_TIME_SECONDS = 60L
   }
 
   @Suppress("unused")
@@ -75,4 +95,64 @@ RestConfig(
 
   @Suppress("unused")
   fun withDebugMode() = this.copy(debugMode = true)
-}
\ No newline at end of file
+
+  /**
+   * enable gzip/deflate compression of responses at [level] (1-9), skipping any response
+   * whose content length is below [threshold] bytes
+   */
+  @Suppress("unused")
+  fun withCompression(
+    level: Int = DEFAULT_COMPRESSION_LEVEL,
+    threshold: Int = DEFAULT_COMPRESSION_THRESHOLD
+  ): RestConfig {
+    require(level in 1..9) { "compression level must be between 1 and 9 but was $level" }
+    require(threshold >= 0) { "compression threshold must not be negative" }
+    return this.copy(
+      compressionEnabled = true,
+      compressionLevel = level,
+      compressionThreshold = threshold
+    )
+  }
+
+  @Suppress("unused")
+  fun withStaticMaxAgeSeconds(value: Long) = this.copy(staticMaxAgeSeconds = value)
+
+  /**
+   * the default [ExecutionPolicy] for bindings that don't declare their own
+   */
+  @Suppress("unused")
+  fun withExecutionPolicy(value: ExecutionPolicy) = this.copy(executionPolicy = value)
+
+  /**
+   * the number of threads, and the time each may run before being reported as blocked,
+   * of the pool that runs [ExecutionPolicy.Worker] bindings
+   */
+  @Suppress("unused")
+  fun withWorkerPool(
+    size: Int,
+    maxExecuteTimeSeconds: Long = DEFAULT_MAX_WORKER_EXECUTE_TIME_SECONDS
+  ): RestConfig {
+    require(size > 0) { "worker pool size must be positive but was $size" }
+    return this.copy(workerPoolSize = size, maxWorkerExecuteTimeSeconds = maxExecuteTimeSeconds)
+  }
+
+  /**
+   * limit the calls each user can make to each binding in [group] to [limit].
+   * The same limit applies to each method of the JSON-RPC service named [group].
+   */
+  fun withRateLimit(group: String, limit: RateLimit) =
+    this.copy(rateLimits = rateLimits + (group to limit))
+
+  /**
+   * how the user name used as a rate limit key is read from an authenticated [User]
+   */
+  @Suppress("unused")
+  fun withRateLimitUserName(value: (User) -> String?) = this.copy(rateLimitUserName = value)
+
+  /**
+   * the cache of the generated OpenAPI paths and schemas; if it holds a document for its key
+   * that document is served and no endpoint or type is resolved for the docs
+   */
+  @Suppress("unused")
+  fun withOpenApiCache(value: OpenAPICache?) = this.copy(openApiCache = value)
+}
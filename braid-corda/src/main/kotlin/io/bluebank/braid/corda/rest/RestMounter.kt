@@ -16,17 +16,26 @@
 package io.bluebank.braid.corda.rest
 
 import io.bluebank.braid.corda.rest.docs.DocsHandler
+import io.bluebank.braid.core.annotation.NonBlocking
 import io.bluebank.braid.core.logging.loggerFor
+import io.bluebank.braid.core.ratelimit.RateLimiter
 import io.vertx.core.Future
+import io.vertx.core.Handler
 import io.vertx.core.Vertx
+import io.vertx.core.WorkerExecutor
 import io.vertx.core.http.HttpMethod
 import io.vertx.ext.auth.jwt.JWTAuth
 import io.vertx.ext.web.Router
 import io.vertx.ext.web.RoutingContext
 import io.vertx.ext.web.handler.*
 import io.vertx.ext.web.sstore.LocalSessionStore
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 import javax.ws.rs.core.Response.Status.TEMPORARY_REDIRECT
 import kotlin.reflect.KCallable
+import kotlin.reflect.full.findAnnotation
 
 /**
  * This class encapsulates a simpler way of setting up a Rest Service (
@@ -80,6 +89,19 @@ class RestMounter(
   private val protectedRouter: Router = Router.router(vertx)
   var currentRouter = unprotectedRouter
   private var groupName: String = ""
+  private var executionPolicy: ExecutionPolicy = config.executionPolicy
+  private val workerExecutor by lazy {
+    vertx.createSharedWorkerExecutor(
+      "braid-rest-worker-pool",
+      config.workerPoolSize,
+      config.maxWorkerExecuteTimeSeconds,
+      TimeUnit.SECONDS
+    )
+  }
+  private val rateLimiters = config.rateLimits.mapValues { RateLimiter(it.value) }
+  // the docs are complete once the paths are mounted and every deferral has been released
+  private val pendingDocs = AtomicInteger(1)
+  private val docsCompletion = Future.future<Void>()
   private val protected: Boolean
     get() {
       return currentRouter == protectedRouter
@@ -89,9 +111,11 @@ class RestMounter(
     if (!config.apiPath.startsWith("/")) throw RuntimeException("path must begin with a /")
     docsHandler = DocsHandlerFactory(config).createDocsHandler()
     mount(config.pathsInit)
+    releaseDocs()
   }
 
   private fun mount(fn: RestMounter.(Router) -> Unit) {
+    configureCompression()
     configureSwaggerAndStatic()
     mountUnprotectedRouter()
     mountProtectedRouter()
@@ -104,6 +128,12 @@ class RestMounter(
     router.mountSubRouter("/$path", unprotectedRouter)
   }
 
+  private fun configureCompression() {
+    if (!config.compressionEnabled) return
+    router.route().handler(CompressionThresholdHandler(config.compressionThreshold))
+    log.info("REST compression enabled at level ${config.compressionLevel} for responses of at least ${config.compressionThreshold} bytes")
+  }
+
   private fun configureSwaggerAndStatic() {
     // configure the swagger json
     router.get("/$swaggerJsonPath").handler(docsHandler)
@@ -114,7 +144,17 @@ class RestMounter(
       3 -> "swagger-2"
       else -> error("unrecognised open api version")
     }
-    val sh = StaticHandler.create(swaggerStaticResource)
+    val sh = when {
+      config.compressionEnabled -> PrecompressedStaticHandler(
+        vertx,
+        swaggerStaticResource,
+        "/$swaggerPath",
+        config.compressionLevel,
+        config.staticMaxAgeSeconds
+      )
+      else -> StaticHandler.create(swaggerStaticResource)
+        .setMaxAgeSeconds(config.staticMaxAgeSeconds)
+    }
     router.getWithRegex("/$swaggerPath").handler {
       if (it.request().path().endsWith("/")) {
         sh.handle(it)
@@ -169,6 +209,21 @@ class RestMounter(
     }
   }
 
+  /**
+   * run the handlers of the enclosed bindings declared in [fn] according to [policy].
+   * Handlers annotated with [NonBlocking] always run on the event loop.
+   */
+  fun executionPolicy(policy: ExecutionPolicy, fn: () -> Unit) {
+    this.executionPolicy.let { old ->
+      executionPolicy = policy
+      try {
+        fn()
+      } finally {
+        executionPolicy = old
+      }
+    }
+  }
+
   /**
    * bind the enclosed bindings declared in [fn] to the unprotected, publicly accessible, router
    */
@@ -267,6 +322,7 @@ class RestMounter(
   }
 
   private fun bind(method: HttpMethod, path: String, fn: RoutingContext.() -> Unit) {
+    bindRateLimit(method, path)
     currentRouter.route(method, path).handler { it.fn() }
     docsHandler.add(groupName, protected, method, path, fn)
   }
@@ -276,13 +332,119 @@ class RestMounter(
     path: String,
     fn: KCallable<Future<Response>>
   ) {
-    currentRouter.route(method, path).bind(fn)
+    bindRateLimit(method, path)
+    currentRouter.route(method, path).bind(fn, executorFor(fn))
     docsHandler.add(groupName, protected, method, path, fn)
   }
 
   @JvmName("bindMethod0")
   public fun <Response> bind(method: HttpMethod, path: String, fn: KCallable<Response>) {
-    currentRouter.route(method, path).bind(fn)
+    bindRateLimit(method, path)
+    currentRouter.route(method, path).bind(fn, executorFor(fn))
     docsHandler.add(groupName, protected, method, path, fn)
   }
+
+  /**
+   * Binds every callable in [bindings] behind a single route for [pattern]. Each binding is
+   * keyed by the values of the path parameters of [pattern], in order, and the target of a
+   * request is resolved with a single hash lookup rather than by matching one route per
+   * binding. Requests with no matching binding fall through to the next route. Each binding
+   * is rate limited and documented as if it was bound to its own concrete path.
+   *
+   * @return the [Dispatch], to which further bindings can be added after mounting
+   */
+  fun <Response> dispatch(
+    method: HttpMethod,
+    pattern: String,
+    bindings: Map<List<String>, KCallable<Response>>
+  ): Dispatch<Response> {
+    val dispatch = Dispatch<Response>(method, pattern)
+    dispatch.add(bindings)
+    currentRouter.route(method, pattern).handler { dispatch.handle(it) }
+    return dispatch
+  }
+
+  /**
+   * The bindings of a route created by [dispatch]. Bindings added after the paths are mounted
+   * must be added on the context that mounted them, because they are also documented.
+   */
+  inner class Dispatch<Response> internal constructor(
+    private val method: HttpMethod,
+    private val pattern: String
+  ) {
+    private val params = pattern.vertxPathParams()
+    private val groupName = this@RestMounter.groupName
+    private val protected = this@RestMounter.protected
+    private val executionPolicy = this@RestMounter.executionPolicy
+    private val rateLimiter = rateLimiters[groupName]
+    private val handlers = ConcurrentHashMap<List<String>, Handler<RoutingContext>>()
+
+    fun add(bindings: Map<List<String>, KCallable<Response>>) {
+      bindings.forEach { (key, fn) ->
+        val path = pattern.withPathParams(key)
+        val handler = fn.toRouteHandler(executorFor(fn, executionPolicy))
+        handlers[key] = when (rateLimiter) {
+          null -> handler
+          else -> {
+            val rateLimit = RateLimitHandler(rateLimiter, "$method $path", config.rateLimitUserName)
+            Handler { rc -> if (rateLimit.admit(rc)) handler.handle(rc) }
+          }
+        }
+        docsHandler.add(groupName, protected, method, path, fn)
+      }
+      log.info("dispatching ${handlers.size} bindings on $method $pattern")
+    }
+
+    internal fun handle(rc: RoutingContext) {
+      val handler = handlers[params.map { rc.pathParam(it) }]
+      when (handler) {
+        null -> rc.next()
+        else -> handler.handle(rc)
+      }
+    }
+  }
+
+  /**
+   * Defers completing the docs, which happens once the paths are mounted, until the returned
+   * function has been called, for paths that finish mounting asynchronously
+   */
+  fun deferDocsCompletion(): () -> Unit {
+    pendingDocs.incrementAndGet()
+    val released = AtomicBoolean()
+    return {
+      if (released.compareAndSet(false, true)) releaseDocs()
+    }
+  }
+
+  /**
+   * @return a future that completes once every path, including those deferred with
+   * [deferDocsCompletion], has been documented
+   */
+  fun docsCompleted(): Future<Void> = docsCompletion
+
+  private fun releaseDocs() {
+    if (pendingDocs.decrementAndGet() == 0) {
+      docsHandler.complete()
+      docsCompletion.complete()
+    }
+  }
+
+  private fun bindRateLimit(method: HttpMethod, path: String) {
+    val rateLimiter = rateLimiters[groupName] ?: return
+    currentRouter.route(method, path)
+      .handler(RateLimitHandler(rateLimiter, "$method $path", config.rateLimitUserName))
+  }
+
+  private fun executorFor(
+    fn: KCallable<*>,
+    policy: ExecutionPolicy = executionPolicy
+  ): WorkerExecutor? {
+    return when {
+      fn.findAnnotation<NonBlocking>() != null -> null
+      // handlers that take the RoutingContext write their own response
+      fn.parameters.any { it.type.classifier == RoutingContext::class } -> null
+      policy == ExecutionPolicy.EventLoop -> null
+      else -> workerExecutor
+    }
+  }
 }
@@ -24,11 +24,15 @@ import io.bluebank.braid.core.logging.loggerFor
 import io.netty.buffer.ByteBuf
 import io.swagger.v3.oas.annotations.Parameter
 import io.vertx.codegen.annotations.Nullable
+import io.vertx.core.Handler
+import io.vertx.core.WorkerExecutor
 import io.vertx.core.buffer.Buffer
 import io.vertx.core.json.Json
 import io.vertx.ext.auth.User
 import io.vertx.ext.web.Route
 import io.vertx.ext.web.RoutingContext
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import java.lang.reflect.InvocationTargetException
 import java.net.URLDecoder
 import java.nio.ByteBuffer
 import javax.ws.rs.*
@@ -48,16 +52,36 @@ class Router {
   }
 }
 
-fun <R> Route.bind(fn: KCallable<R>) {
+/**
+ * Binds [fn] to this route. Parameters are always parsed on the event loop; [fn] itself is
+ * called on the event loop if [executor] is null, otherwise on one of the [executor]'s
+ * threads, with the response written back from the event loop.
+ */
+fun <R> Route.bind(fn: KCallable<R>, executor: WorkerExecutor? = null) {
+  this.handler(fn.toRouteHandler(executor))
+}
+
+/**
+ * Creates the handler that [Route.bind] binds to a route
+ */
+fun <R> KCallable<R>.toRouteHandler(executor: WorkerExecutor? = null): Handler<RoutingContext> {
+  val fn = this
   fn.validateParameters()
-  this.handler { rc ->
+  return Handler { rc ->
     try {
       val args = fn.parseArguments(rc)
-      try {
-        rc.response().end(fn.call(*args))
-      } catch (e: Throwable) {
-        log.warn("Unable to call: ${rc.request().path()}", e)
-        rc.response().end(e, HTTP_UNPROCESSABLE_STATUS_CODE)
+      when (executor) {
+        null -> try {
+          rc.response().end(fn.call(*args))
+        } catch (e: Throwable) {
+          rc.endWithCallFailure(e)
+        }
+        else -> executor.executeBlocking<R>({ it.complete(fn.call(*args)) }, false) {
+          when {
+            it.succeeded() -> rc.response().end(it.result())
+            else -> rc.endWithCallFailure(it.cause())
+          }
+        }
       }
     } catch (e: Throwable) {
       log.warn("Unable to parse parameters: ${rc.request().path()}", e)
@@ -66,6 +90,16 @@ fun <R> Route.bind(fn: KCallable<R>) {
   }
 }
 
+private fun RoutingContext.endWithCallFailure(e: Throwable) {
+  log.warn("Unable to call: ${request().path()}", e)
+  val cause = if (e is InvocationTargetException) e.targetException else e
+  when (cause) {
+    // e.g. 503 from a call that failed fast because the node is unavailable
+    is HttpStatusException -> response().end(cause, cause.statusCode, cause.message)
+    else -> response().end(e, HTTP_UNPROCESSABLE_STATUS_CODE)
+  }
+}
+
 private fun <R> KCallable<R>.parseArguments(context: RoutingContext): Array<Any?> {
   return this.parameters.map { it.parseParameter(context) }.toTypedArray()
 }
@@ -40,5 +40,17 @@ interface DocsHandler : Handler<RoutingContext> {
 
   fun addType(type: Type)
 
+  /**
+   * adds [types] in the order given, possibly resolving them in parallel
+   */
+  fun addTypes(types: List<Type>) {
+    types.forEach { addType(it) }
+  }
+
+  /**
+   * called once all endpoints and types have been added
+   */
+  fun complete() {}
+
   fun getSwaggerString(context: RoutingContext? = null): String
 }
\ No newline at end of file
@@ -18,9 +18,10 @@ package io.bluebank.braid.corda.rest.docs.v3
 import io.bluebank.braid.corda.rest.SwaggerInfo
 import io.bluebank.braid.corda.rest.docs.DocsHandler
 import io.bluebank.braid.corda.rest.toSwaggerPath
+import io.netty.handler.codec.http.HttpHeaderNames
+import io.netty.handler.codec.http.HttpHeaderValues
 import io.netty.handler.codec.http.HttpHeaderValues.APPLICATION_JSON
 import io.netty.handler.codec.http.HttpResponseStatus
-import io.swagger.v3.core.util.Json
 import io.swagger.v3.oas.models.Components
 import io.swagger.v3.oas.models.OpenAPI
 import io.swagger.v3.oas.models.PathItem
@@ -36,67 +37,116 @@ import net.corda.core.utilities.contextLogger
 import java.lang.reflect.Type
 import java.net.URI
 import java.net.URL
+import java.util.concurrent.CopyOnWriteArrayList
 import kotlin.reflect.KCallable
 
 class DocsHandlerV3(
   private val swaggerInfo: SwaggerInfo = SwaggerInfo(),
   private val auth: SecurityScheme? = null,
   private val basePath: String = "http://localhost:8080",
-  private val debugMode: Boolean = false
+  private val debugMode: Boolean = false,
+  cache: OpenAPICache? = null
 ) : DocsHandler {
 
   companion object {
     private val log = contextLogger()
     internal const val SECURITY_DEFINITION_NAME = "Authorization"
+    private const val SERVER_URL_PLACEHOLDER = "braid:server-url"
   }
 
   private var currentGroupName: String = ""
-  private val endpoints = mutableListOf<EndPointV3>()
-  private var openAPI: OpenAPI? = null // this will be thread-safe because of the way vertx works
+  // endpoints may be added, by flows registered on a worker, while the document is being served
+  private val endpoints = CopyOnWriteArrayList<EndPointV3>()
+  @Volatile
+  private var encodedOpenAPI: EncodedOpenAPI? = null // invalidated when endpoints or types are added
+  // counts the invalidations, so that a document built before one is not kept after it
+  private var revision = 0L
   private val modelContext = ModelContextV3()
+  private val cache = cache.takeUnless { debugMode }
+  // when the paths and schemas come from the cache, endpoints and types are not resolved again
+  private val cachedOpenAPI = this.cache?.read()
 
   override fun handle(context: RoutingContext) {
-    val output = getSwaggerString(context)
+    val compact = context.request().getParam("compact")?.toBoolean() ?: false
+    val gzip = context.parsedHeaders().acceptEncoding()
+      .any { it.value() == HttpHeaderValues.GZIP.toString() && it.weight() > 0 }
+    val output = getEncodedOpenAPI().encode(serverURL(context).toString(), !compact, gzip)
     context.response()
       .setStatusCode(HttpResponseStatus.OK.code())
       .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
-//      .putHeader(HttpHeaders.CONTENT_LENGTH, output.length.toString())
-      .setChunked(true)
+      .putHeader(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING)
+      .apply { if (gzip) putHeader(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP) }
       .end(output)
   }
 
   override fun getSwaggerString(context: RoutingContext?): String {
-    return Json.pretty().writeValueAsString(createOrGetOpenAPI(context))
+    return getEncodedOpenAPI().encode(serverURL(context).toString()).toString()
   }
 
-  private fun createOrGetOpenAPI(context: RoutingContext? = null): OpenAPI {
-    if (openAPI == null || debugMode) {
-      openAPI = createOpenAPI(context)
-    }
-    return openAPI!!
+  private fun getEncodedOpenAPI(): EncodedOpenAPI {
+    encodedOpenAPI.takeUnless { debugMode }?.let { return it }
+    val builtAt = synchronized(this) { revision }
+    return EncodedOpenAPI(buildOpenAPI(SERVER_URL_PLACEHOLDER), SERVER_URL_PLACEHOLDER)
+      .also { keep(it, builtAt) }
+  }
+
+  @Synchronized
+  private fun keep(encoded: EncodedOpenAPI, builtAt: Long) {
+    if (revision == builtAt) encodedOpenAPI = encoded
+  }
+
+  @Synchronized
+  private fun invalidate() {
+    revision++
+    encodedOpenAPI = null
+  }
+
+  /**
+   * writes the document to the cache, if there is one, now that it is complete
+   */
+  override fun complete() {
+    if (cache == null || cachedOpenAPI != null) return
+    val builtAt = synchronized(this) { revision }
+    val openAPI = buildOpenAPI(SERVER_URL_PLACEHOLDER)
+    cache.write(openAPI)
+    keep(EncodedOpenAPI(openAPI, SERVER_URL_PLACEHOLDER), builtAt)
   }
 
   internal fun createOpenAPI(context: RoutingContext? = null): OpenAPI {
+    return buildOpenAPI(serverURL(context).toString())
+  }
+
+  private fun serverURL(context: RoutingContext?): URL {
     val baseURL = URL(basePath)
-    val serverURI = when (context) {
+    return when (context) {
       null -> baseURL
       else -> {
         val uri = URI(context.request().absoluteURI())
         URL(uri.scheme, uri.host, uri.port, baseURL.path)
       }
     }
+  }
 
+  private fun buildOpenAPI(serverURL: String): OpenAPI {
     return OpenAPI()
       .apply {
         info(createSwaggerInfo())
-        addServersItem(Server().url(serverURI.toString()))
+        addServersItem(Server().url(serverURL))
         // hopefully under server above .basePath(url.path)
         if (auth != null) {
           getOrCreateComponents().securitySchemes = mapOf(SECURITY_DEFINITION_NAME to auth)
         }
         // may be covered under server? .schema(scheme)
-        modelContext.addToSwagger(this)
-        endpoints.forEach { addEndpoint(it) }
+        when (cachedOpenAPI) {
+          null -> {
+            modelContext.addToSwagger(this)
+            endpoints.forEach { addEndpoint(it) }
+          }
+          else -> {
+            paths(cachedOpenAPI.paths)
+            cachedOpenAPI.components?.schemas?.forEach { (name, model) -> schema(name, model) }
+          }
+        }
       }
   }
 
@@ -142,6 +192,7 @@ class DocsHandlerV3(
     path: String,
     handler: KCallable<Response>
   ) {
+    if (cachedOpenAPI != null) return
     val endpoint = EndPointV3.create(
       groupName,
       protected,
@@ -163,12 +214,14 @@ class DocsHandlerV3(
     path: String,
     handler: (RoutingContext) -> Unit
   ) {
+    if (cachedOpenAPI != null) return
     val endpoint = EndPointV3.create(groupName, protected, method, path, handler, modelContext)
     add(endpoint)
   }
 
   private fun add(endpoint: EndPointV3) {
     endpoints.add(endpoint)
+    invalidate()
   }
 
   fun group(groupId: String, fn: () -> Unit) {
@@ -177,12 +230,22 @@ class DocsHandlerV3(
   }
 
   override fun addType(type: Type) {
+    if (cachedOpenAPI != null) return
     try {
       modelContext.addType(type)
+      invalidate()
     } catch (e: Exception) {
       log.error("Unable to add root type: $type error: ${e.message}")
     }
   }
+
+  override fun addTypes(types: List<Type>) {
+    if (cachedOpenAPI != null) return
+    modelContext.addTypes(types) { type, e ->
+      log.error("Unable to add root type: $type error: ${e.message}")
+    }
+    invalidate()
+  }
 }
 
 private fun OpenAPI.getOrCreateComponents(): Components {
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest.docs.v3
+
+import io.swagger.v3.core.util.Json
+import io.swagger.v3.oas.models.OpenAPI
+import io.vertx.core.buffer.Buffer
+import java.io.ByteArrayOutputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * An [OpenAPI] document serialised once, in compact and pretty form, with its server url
+ * left as [placeholder]. The document for a given server url is spliced together from the
+ * serialised bytes rather than serialised again, and is cached, with its gzipped form, for
+ * the [maxServerUrls] most recently requested server urls.
+ */
+internal class EncodedOpenAPI(
+  openAPI: OpenAPI,
+  placeholder: String,
+  private val maxServerUrls: Int = 16
+) {
+
+  private val quotedPlaceholder = Json.mapper().writeValueAsBytes(placeholder)
+  private val compact = Template(Json.mapper().writeValueAsBytes(openAPI))
+  private val pretty = Template(Json.pretty().writeValueAsBytes(openAPI))
+  private val encodings = object : LinkedHashMap<Pair<String, Boolean>, Encodings>(16, 0.75f, true) {
+    override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Pair<String, Boolean>, Encodings>?): Boolean {
+      return size > maxServerUrls * 2
+    }
+  }
+
+  fun encode(serverUrl: String, pretty: Boolean = true, gzip: Boolean = false): Buffer {
+    val encoding = synchronized(encodings) {
+      encodings.getOrPut(serverUrl to pretty) {
+        val template = if (pretty) this.pretty else compact
+        Encodings(template.fill(Json.mapper().writeValueAsBytes(serverUrl)))
+      }
+    }
+    return if (gzip) encoding.gzip else encoding.identity
+  }
+
+  private inner class Template(bytes: ByteArray) {
+    private val prefix: ByteArray
+    private val suffix: ByteArray
+
+    init {
+      val index = bytes.indexOf(quotedPlaceholder)
+      check(index >= 0) { "server url placeholder not found in serialised document" }
+      prefix = bytes.copyOfRange(0, index)
+      suffix = bytes.copyOfRange(index + quotedPlaceholder.size, bytes.size)
+    }
+
+    fun fill(value: ByteArray): Buffer {
+      return Buffer.buffer(prefix.size + value.size + suffix.size)
+        .appendBytes(prefix)
+        .appendBytes(value)
+        .appendBytes(suffix)
+    }
+  }
+
+  private class Encodings(val identity: Buffer) {
+    val gzip: Buffer by lazy {
+      val output = ByteArrayOutputStream(identity.length() / 4)
+      GZIPOutputStream(output).use { it.write(identity.bytes) }
+      Buffer.buffer(output.toByteArray())
+    }
+  }
+}
+
+private fun ByteArray.indexOf(target: ByteArray): Int {
+  outer@ for (i in 0..size - target.size) {
+    for (j in target.indices) {
+      if (this[i + j] != target[j]) continue@outer
+    }
+    return i
+  }
+  return -1
+}
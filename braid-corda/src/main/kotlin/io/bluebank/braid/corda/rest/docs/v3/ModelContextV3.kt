@@ -29,45 +29,78 @@ import io.vertx.core.json.Json
 import net.corda.core.utilities.contextLogger
 import java.lang.reflect.ParameterizedType
 import java.lang.reflect.Type
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.stream.Collectors
 
+/**
+ * The schemas of the types added so far. Types may be added while the document is being
+ * served, so the models are read as a copy and merged under this context's lock.
+ */
 class ModelContextV3 {
   companion object {
     private val log = contextLogger()
+    // enough batches for the pool's threads to share out the work evenly
+    private const val BATCHES_PER_THREAD = 4
   }
 
   private val mutableModels = mutableMapOf<String, Schema<*>>()
-  val models: Map<String, Schema<*>> get() = mutableModels
-  private val modelConverters = ModelConverters().apply {
-    val typeNameConverter = QualifiedTypeNameConverter(Json.mapper)
-    addConverter(typeNameConverter)
-    addConverter(JSR310ModelConverterV3())
-    addConverter(MixinModelConverterV3(Json.mapper))
-    addConverter(SuperClassModelConverterV3())
-    addConverter(ComposedSchemaFixV3())
-    addConverter(CustomModelConverterV3())
-    addConverter(SyntheticModelConverter(typeNameConverter))
-  }
+  val models: Map<String, Schema<*>> get() = synchronized(this) { LinkedHashMap(mutableModels) }
+  private val modelConverters = createModelConverters()
 
   init {
     addType(Throwable::class.java)
   }
 
+  @Synchronized
   fun addType(type: Type): ResolvedSchema {
+    return resolve(type, modelConverters).also { merge(it) }
+  }
+
+  /**
+   * Resolves the schemas of [types] in parallel on [pool] and then merges them into [models]
+   * in the order of [types], giving the same models as calling [addType] for each in turn.
+   * Types that cannot be resolved are passed to [onError] and skipped.
+   *
+   * Some converters keep state between calls, so the types are resolved in batches, each with
+   * its own converters, which are dropped with the batch.
+   */
+  fun addTypes(
+    types: List<Type>,
+    pool: ForkJoinPool = ForkJoinPool.commonPool(),
+    onError: (Type, Throwable) -> Unit = { type, err -> throw RuntimeException("Unable to add type: $type", err) }
+  ) {
+    val batchSize = Math.max(1, types.size / (pool.parallelism * BATCHES_PER_THREAD))
+    val resolutions = pool.submit(Callable {
+      types.chunked(batchSize).parallelStream().map { batch ->
+        val converters = createModelConverters()
+        batch.map { type ->
+          try {
+            type to resolve(type, converters)
+          } catch (e: Throwable) {
+            type to e
+          }
+        }
+      }.collect(Collectors.toList()).flatten()
+    }).get()
+    synchronized(this) {
+      resolutions.forEach { (type, resolution) ->
+        when (resolution) {
+          is ResolvedSchema -> merge(resolution)
+          is Throwable -> onError(type, resolution)
+        }
+      }
+    }
+  }
+
+  private fun resolve(type: Type, modelConverters: ModelConverters): ResolvedSchema {
     // todo move to CustomModelConverter
     val actualType = type.actualType()
     return when {
       actualType.isEmptyResponseType() -> ResolvedSchema()
       else -> {
         try {
-          actualType.createSwaggerModels()
-            .also { schema ->
-              val referencedSchemas = schema.referencedSchemas
-              referencedSchemas.keys.forEach { schemaName ->
-                mutableModels.compute(schemaName) { _, prev ->
-                  retainDiscriminator(prev, referencedSchemas[schemaName])
-                }
-              }
-            }
+          actualType.createSwaggerModels(modelConverters)
         } catch (e: Throwable) {
           throw RuntimeException("Unable to convert actual type: $actualType", e)
         }
@@ -75,6 +108,15 @@ class ModelContextV3 {
     }
   }
 
+  private fun merge(schema: ResolvedSchema) {
+    val referencedSchemas = schema.referencedSchemas ?: return
+    referencedSchemas.keys.forEach { schemaName ->
+      mutableModels.compute(schemaName) { _, prev ->
+        retainDiscriminator(prev, referencedSchemas[schemaName])
+      }
+    }
+  }
+
   fun retainDiscriminator(
     current: Schema<*>?,
     possibleReplacement: Schema<*>?
@@ -112,7 +154,18 @@ class ModelContextV3 {
     return openApi
   }
 
-  private fun Type.createSwaggerModels(): ResolvedSchema {
+  private fun createModelConverters() = ModelConverters().apply {
+    val typeNameConverter = QualifiedTypeNameConverter(Json.mapper)
+    addConverter(typeNameConverter)
+    addConverter(JSR310ModelConverterV3())
+    addConverter(MixinModelConverterV3(Json.mapper))
+    addConverter(SuperClassModelConverterV3())
+    addConverter(ComposedSchemaFixV3())
+    addConverter(CustomModelConverterV3())
+    addConverter(SyntheticModelConverter(typeNameConverter))
+  }
+
+  private fun Type.createSwaggerModels(modelConverters: ModelConverters): ResolvedSchema {
     return modelConverters.resolveAsResolvedSchema(
       AnnotatedType(this)
         .resolveAsRef(true)
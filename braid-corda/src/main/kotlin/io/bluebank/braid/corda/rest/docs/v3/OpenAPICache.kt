@@ -0,0 +1,89 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest.docs.v3
+
+import io.bluebank.braid.corda.rest.AuthSchema
+import io.bluebank.braid.core.utils.PathsClassLoader
+import io.swagger.v3.core.util.Json
+import io.swagger.v3.oas.models.Components
+import io.swagger.v3.oas.models.OpenAPI
+import net.corda.core.utilities.contextLogger
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+
+/**
+ * Persists the paths and schemas of a generated OpenAPI document to [dir] under [key], so that
+ * a later start with the same [key] can serve them without resolving any models.
+ */
+class OpenAPICache(private val dir: File, val key: String) {
+
+  companion object {
+    private val log = contextLogger()
+
+    /**
+     * @return a cache keyed by the [version] of braid, the OpenAPI version and auth schema of
+     * the document, and the contents of the jars of [classLoader], or null if [classLoader]
+     * was not created from a set of local jars, or the version of braid is not known, as in a
+     * development build whose document may change without it
+     */
+    fun forJars(
+      dir: File,
+      classLoader: ClassLoader,
+      openApiVersion: Int,
+      authSchema: AuthSchema,
+      version: String? = OpenAPICache::class.java.`package`?.implementationVersion
+    ): OpenAPICache? {
+      if (version == null) {
+        log.info("not caching the OpenAPI document as the version of braid is not known")
+        return null
+      }
+      val jarsHash = PathsClassLoader.jarsHash(classLoader) ?: return null
+      return OpenAPICache(dir, "$version-v$openApiVersion-$authSchema-$jarsHash")
+    }
+  }
+
+  private val file = File(dir, "openapi-$key.json")
+
+  fun read(): OpenAPI? {
+    if (!file.exists()) {
+      log.info("no cached OpenAPI document at ${file.absolutePath}")
+      return null
+    }
+    return try {
+      Json.mapper().readValue(file, OpenAPI::class.java)
+        .also { log.info("using cached OpenAPI document ${file.absolutePath}") }
+    } catch (e: Throwable) {
+      log.warn("ignoring unreadable cached OpenAPI document ${file.absolutePath}", e)
+      null
+    }
+  }
+
+  fun write(openAPI: OpenAPI) {
+    try {
+      dir.mkdirs()
+      val cached = OpenAPI()
+        .paths(openAPI.paths)
+        .components(Components().schemas(openAPI.components?.schemas))
+      val temp = File.createTempFile("openapi-", ".tmp", dir)
+      Json.mapper().writeValue(temp, cached)
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      log.info("cached OpenAPI document in ${file.absolutePath}")
+    } catch (e: Throwable) {
+      log.warn("failed to cache OpenAPI document in ${file.absolutePath}", e)
+    }
+  }
+}
@@ -18,6 +18,7 @@ package io.bluebank.braid.corda.serialisation.serializers
 import com.fasterxml.jackson.databind.module.SimpleModule
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule
 import io.bluebank.braid.corda.serialisation.mixin.*
 import io.bluebank.braid.core.json.BraidJacksonInit
@@ -121,6 +122,10 @@ object BraidCordaJacksonInit {
         .registerModule(Jdk8Module())
         .registerModule(JavaTimeModule())
     };
+    if (BraidJacksonInit.isAfterburnerEnabled) {
+      // the vertx mappers already have it from BraidJacksonInit
+      io.swagger.v3.core.util.Json.mapper().registerModule(AfterburnerModule())
+    }
   }
 
   fun init() {
@@ -20,27 +20,41 @@ import io.bluebank.braid.corda.BraidCordaJacksonSwaggerInit
 import io.bluebank.braid.corda.rest.AuthSchema
 import io.bluebank.braid.corda.rest.RestConfig
 import io.bluebank.braid.corda.rest.RestMounter
+import io.bluebank.braid.corda.rest.docs.v3.OpenAPICache
+import io.bluebank.braid.corda.server.flow.FlowAdmission
+import io.bluebank.braid.corda.server.flow.FlowBatch
 import io.bluebank.braid.corda.server.flow.FlowInitiator
+import io.bluebank.braid.corda.server.flow.FlowInitiators
+import io.bluebank.braid.corda.server.flow.FlowJobStore
+import io.bluebank.braid.corda.server.flow.FlowJobs
+import io.bluebank.braid.corda.server.flow.FlowPriority
+import io.bluebank.braid.corda.server.flow.IdempotentFlowStarts
+import io.bluebank.braid.corda.server.progress.ProgressHistory
+import io.bluebank.braid.corda.server.progress.ProgressTopics
 import io.bluebank.braid.corda.server.progress.TrackerHandler
 import io.bluebank.braid.corda.server.rpc.RPCConnections
 import io.bluebank.braid.corda.server.rpc.RPCConnectionsAuth
 import io.bluebank.braid.corda.server.rpc.RPCConnectionsShared
 import io.bluebank.braid.corda.services.CordaServicesAdapter
+import io.bluebank.braid.corda.services.NetworkMapReplica
 import io.bluebank.braid.corda.services.RestNetworkMapService
 import io.bluebank.braid.corda.services.adapters.RPCFactoryCordaServicesAdapter
 import io.bluebank.braid.corda.services.adapters.toCordaServicesAdapter
 import io.bluebank.braid.corda.services.vault.VaultService
 import io.bluebank.braid.core.http.HttpServerConfig
 import io.bluebank.braid.core.logging.loggerFor
+import io.bluebank.braid.core.ratelimit.RateLimit
 import io.vertx.core.Future
 import io.vertx.core.Vertx
+import io.vertx.core.http.HttpMethod
 import io.vertx.core.http.HttpServerOptions
 import io.vertx.ext.auth.AuthProvider
 import io.vertx.ext.auth.User
 import net.corda.core.messaging.CordaRPCOps
 import net.corda.core.utilities.NetworkHostAndPort
+import java.io.File
 import java.util.concurrent.ConcurrentHashMap
-import kotlin.reflect.KClass
+import kotlin.reflect.KCallable
 import kotlin.reflect.KFunction1
 
 open class BraidCordaStandaloneServer(
@@ -50,7 +64,18 @@ open class BraidCordaStandaloneServer(
   val nodeAddress: NetworkHostAndPort = NetworkHostAndPort("localhost", 8080),
   val openApiVersion: Int = 3,
   val vertx: Vertx = Vertx.vertx(),
-  val httpServerOptions: HttpServerOptions = HttpServerConfig.defaultServerOptions()
+  val httpServerOptions: HttpServerOptions = HttpServerConfig.defaultServerOptions(),
+  val openApiCacheDir: File? = null,
+  val classIndexFile: File? = null,
+  val rpcConnections: Int = 1,
+  val progressHistory: ProgressHistory = ProgressHistory(),
+  val flowBatchParallelism: Int = FlowBatch.DEFAULT_PARALLELISM,
+  val jobStore: FlowJobStore = FlowJobStore(),
+  val idempotencyWindowMillis: Long = IdempotentFlowStarts.DEFAULT_WINDOW_MILLIS,
+  val flowConcurrency: Int = FlowAdmission.DEFAULT_MAX_CONCURRENT,
+  val flowQueueSize: Int = FlowAdmission.DEFAULT_MAX_QUEUED,
+  val highPriorityUsers: List<String> = emptyList(),
+  val rateLimits: Map<String, RateLimit> = emptyMap()
 ) {
 
   companion object {
@@ -104,7 +129,7 @@ open class BraidCordaStandaloneServer(
 
     protected fun createCordaServicesAdapter(cordaRPCOps: CordaRPCOps): CordaServicesAdapter {
       val delegate = cordaRPCOps.toCordaServicesAdapter()
-      return RPCFactoryCordaServicesAdapter(delegate)
+      return RPCFactoryCordaServicesAdapter(delegate, NetworkMapReplica(delegate))
     }
   }
 
@@ -116,7 +141,8 @@ open class BraidCordaStandaloneServer(
   private class WhoShared(
     private val nodeAddress: NetworkHostAndPort,
     private val userName: String,
-    private val password: String
+    private val password: String,
+    private val poolSize: Int
   ) : Who {
 
     class MyAdapters(rpc: RPCConnections) : Adapters(rpc) {
@@ -133,7 +159,7 @@ open class BraidCordaStandaloneServer(
     }
 
     override fun createAdapters(): Adapters {
-      val rpc: RPCConnections = RPCConnectionsShared(nodeAddress, userName, password)
+      val rpc: RPCConnections = RPCConnectionsShared(nodeAddress, userName, password, poolSize)
       return MyAdapters(rpc)
     }
 
@@ -198,7 +224,7 @@ open class BraidCordaStandaloneServer(
 
   // decide which authentication strategy we're using
   private val who: Who = if (userName.isNullOrBlank()) WhoAuth(nodeAddress, vertx)
-  else WhoShared(nodeAddress, userName, password)
+  else WhoShared(nodeAddress, userName, password, rpcConnections)
 
   // this is so that BraidDocsMain can call .withAuth like BraidVerticle does
   val authConstructor: ((Vertx) -> AuthProvider)?
@@ -210,7 +236,6 @@ open class BraidCordaStandaloneServer(
     BraidConfig()
       .withPort(port)
       .withHttpServerOptions(httpServerOptions)
-      .withRestConfig(createRestConfig())
       .withWho(who)
       .withRestConfig(createRestConfig(openApiVersion))
       .withVertx(vertx)
@@ -221,20 +246,51 @@ open class BraidCordaStandaloneServer(
 
   fun createRestConfig(openApiVersion: Int = 2): RestConfig {
     val classLoader = Thread.currentThread().contextClassLoader
-    val cordappsScanner = CordaClasses(classLoader)
+    val cordappsScanner = CordaClasses(classLoader, classIndexFile)
 
     val adapters = who.createAdapters()
+    adapters.rpc.warmUp(vertx)
+    adapters.rpc.monitor(vertx)
 
     val networkService = RestNetworkMapService(adapters::getCordaServicesAdapter)
     val vaultService = VaultService(adapters.rpc::getConnection)
+    val readiness = CordappReadiness()
+    // progress and jobs belong to the user who started the flow when users log in
+    val userName: (User) -> String? = when {
+      who.isAuth -> { user -> braidAuth.getUserName(user) }
+      else -> { _ -> null }
+    }
+    val progress = ProgressTopics(vertx.eventBus(), userName, progressHistory)
+    val initiators = FlowInitiators(progress)
+    val batch = FlowBatch(initiators, flowBatchParallelism, readiness)
+    // jobs wait for no more flows than the admission lets start or wait to
+    val maxRunningJobs = when {
+      flowConcurrency > 0 -> flowConcurrency + flowQueueSize
+      else -> FlowJobs.DEFAULT_MAX_RUNNING
+    }
+    val jobs = FlowJobs(initiators, progress, jobStore, userName, maxRunningJobs)
+    val starts = IdempotentFlowStarts(idempotencyWindowMillis, userName)
+    // queued flows are started on a worker, as starting a flow blocks on the node
+    // only the listed users may start flows at high priority, and nobody if users don't log in
+    val priorityOf: (User) -> FlowPriority? = { user ->
+      userName(user)?.takeIf { it in highPriorityUsers }?.let { FlowPriority.HIGH }
+    }
+    val admission = FlowAdmission(flowConcurrency, flowQueueSize, userName, priorityOf, dispatch = { start ->
+      vertx.executeBlocking<Unit>({ start(); it.complete() }, false) {}
+    })
 
     return RestConfig()
       .withOpenApiVersion(openApiVersion)
+      .withOpenApiCache(openApiCacheDir?.let {
+        OpenAPICache.forJars(it, classLoader, openApiVersion, who.authSchema)
+      })
       .withAuthSchema(who.authSchema)
+      .let { rateLimits.entries.fold(it) { config, limit -> config.withRateLimit(limit.key, limit.value) } }
+      .let { if (who.isAuth) it.withRateLimitUserName(braidAuth::getUserName) else it }
       .withPaths {
-        cordappsScanner.cordaSerializableClasses.forEach {
-          this.docsHandler.addType(it.java)
-        }
+        // the types are loaded and resolved here, in parallel, unless the OpenAPI document is
+        // cached, in which case none of them are loaded
+        this.docsHandler.addTypes(cordappsScanner.cordaSerializableTypes)
         protected {
           group("network") {
             get("/network/nodes", networkService::nodes)
@@ -244,15 +300,24 @@ open class BraidCordaStandaloneServer(
           group("vault") {
             get("/vault/vaultQuery", vaultService::vaultQuery)
             post("/vault/vaultQueryBy", vaultService::vaultQueryBy)
+            post("/vault/export", vaultService::vaultExport)
+            post("/vault/vaultTrackBy", vaultService::vaultTrackBy)
+          }
+          group("jobs") {
+            get("/jobs/:id", jobs::job)
+          }
+          group("rpc") {
+            get("/rpc/connections", adapters.rpc::metrics)
           }
           group("cordapps") {
             get("/cordapps", cordappsScanner::cordapps)
-            get("/cordapps/progress-tracker", TrackerHandler(vertx.eventBus())::handle)
+            get("/cordapps/progress-tracker", TrackerHandler(progress)::handle)
             get("/cordapps/:cordapp/flows", cordappsScanner::flowsForCordapp)
+            get("/cordapps/readiness", readiness::readiness)
+            post("/cordapps/flows/batch", batch::handle)
+            get("/cordapps/flows/admission", admission::metrics)
             try {
-              cordappsScanner.flowClassesByCordapp.forEach { (cordapp, flowClass) ->
-                addFlow(cordapp, flowClass, adapters::getCordaServicesAdapter)
-              }
+              addFlows(cordappsScanner, readiness, progress, starts, admission, initiators, jobs, adapters::getCordaServicesAdapter)
             } catch (e: Throwable) {
               log.error("failed to register flows", e)
             }
@@ -264,13 +329,60 @@ open class BraidCordaStandaloneServer(
       }
   }
 
-  private fun RestMounter.addFlow(cordapp: String, flowClass: KClass<out Any>, cordaServicesAdapter: KFunction1<User?, CordaServicesAdapter>) {
-    try {
-      val path = "/cordapps/$cordapp/flows/${flowClass.java.name}"
-      log.info("registering: $path")
-      post(path, FlowInitiator(cordaServicesAdapter, vertx.eventBus(), who.isAuth).getInitiator(flowClass))
-    } catch (e: Throwable) {
-      log.warn("unable to register flow:${flowClass.java.name}", e);
+  /**
+   * Registers the flows of each cordapp on a worker thread, one cordapp at a time per worker,
+   * so that the server starts listening without waiting for every flow's payload class to be
+   * generated. Until its flows are registered, calls to a cordapp's flows are answered with
+   * `503 Service Unavailable`.
+   */
+  private fun RestMounter.addFlows(
+    cordappsScanner: CordaClasses,
+    readiness: CordappReadiness,
+    progress: ProgressTopics,
+    starts: IdempotentFlowStarts,
+    admission: FlowAdmission,
+    initiators: FlowInitiators,
+    jobs: FlowJobs,
+    cordaServicesAdapter: KFunction1<User?, CordaServicesAdapter>
+  ) {
+    val flowInitiator = FlowInitiator(cordaServicesAdapter, progress, who.isAuth, starts, admission)
+    // one route for all flows - the parameter names must not collide with flow parameter names
+    val flowsPath = "/cordapps/:braidCordapp/flows/:braidFlow"
+    val ready = readiness.handler("braidCordapp")
+    val async = jobs.handler("braidFlow")
+    router {
+      route(HttpMethod.POST, flowsPath).handler { ready(it) }
+      route(HttpMethod.POST, flowsPath).handler { async(it) }
+    }
+    val flows = dispatch(HttpMethod.POST, flowsPath, emptyMap<List<String>, KCallable<Future<Any?>>>())
+    // the flows are added on the context that mounts the paths, or on one context if mounted
+    // outside of vertx, as is the case for BraidDocsMain
+    val context = vertx.orCreateContext
+    cordappsScanner.flowClassNamesByCordapp.forEach { (cordapp, flowClassNames) ->
+      readiness.pending(cordapp, flowClassNames)
+      val docsDone = deferDocsCompletion()
+      context.executeBlocking<Map<List<String>, KCallable<Future<Any?>>>>({ future ->
+        val cordappInitiators = flowClassNames.mapNotNull { flowClassName ->
+          try {
+            log.info("registering: /cordapps/$cordapp/flows/$flowClassName")
+            val flowClass = cordappsScanner.loadClass(flowClassName)
+            listOf(cordapp, flowClassName) to flowInitiator.getInitiator(flowClass)
+          } catch (e: Throwable) {
+            log.warn("unable to register flow:$flowClassName", e)
+            null
+          }
+        }.toMap()
+        future.complete(cordappInitiators)
+      }, false) { result ->
+        if (result.succeeded()) {
+          flows.add(result.result())
+          initiators.add(result.result().mapKeys { (key, _) -> key[1] })
+        } else {
+          log.error("failed to register flows for cordapp $cordapp", result.cause())
+        }
+        readiness.ready(cordapp)
+        docsDone()
+      }
     }
   }
 }
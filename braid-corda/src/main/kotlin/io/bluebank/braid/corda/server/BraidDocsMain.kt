@@ -47,6 +47,10 @@ class BraidDocsMain() {
         .withOpenApiVersion(openApiVersion)
         .withAuth(server.authConstructor?.invoke(vertx))
       val restMounter = RestMounter(restConfig, Router.router(vertx), vertx)
+      // the flows of each cordapp are documented as they are registered
+      val documented = CountDownLatch(1)
+      restMounter.docsCompleted().setHandler { documented.countDown() }
+      documented.await()
       restMounter.docsHandler.getSwaggerString()
     } finally {
       log.info("shutting down Vertx")
@@ -15,14 +15,16 @@
  */
 package io.bluebank.braid.corda.server
 
+import io.bluebank.braid.corda.server.flow.FlowJobStore
+import io.bluebank.braid.corda.server.progress.ProgressHistory
 import io.bluebank.braid.core.async.catch
 import io.bluebank.braid.core.async.onSuccess
-import io.bluebank.braid.core.http.HttpServerConfig
 import io.bluebank.braid.core.logging.loggerFor
 import io.bluebank.braid.core.utils.toJarsClassLoader
 import io.bluebank.braid.core.utils.tryWithClassLoader
 import io.vertx.core.Future
 import io.vertx.core.Vertx
+import java.io.File
 
 private val log = loggerFor<BraidMain>()
 
@@ -48,7 +50,8 @@ class BraidMain(
   }
 
   fun start(config: BraidServerConfig): Future<String> {
-    return tryWithClassLoader(config.cordapps.toJarsClassLoader()) {
+    val classLoader = config.cordapps.toJarsClassLoader()
+    return tryWithClassLoader(classLoader) {
       BraidCordaStandaloneServer(
         port = config.port,
         userName = config.user,
@@ -56,7 +59,25 @@ class BraidMain(
         nodeAddress = config.networkHostAndPort,
         openApiVersion = config.openApiVersion,
         vertx = vertx,
-        httpServerOptions = HttpServerConfig.buildFromPropertiesAndVars()
+        httpServerOptions = config.httpServerOptions(),
+        openApiCacheDir = config.cacheDir?.let { File(it) },
+        classIndexFile = config.cacheDir?.let { File(it, "class-index.bin") },
+        rpcConnections = config.rpcConnections,
+        progressHistory = ProgressHistory(
+          config.progressHistoryMillis,
+          config.progressHistoryBytes
+        ),
+        flowBatchParallelism = config.flowBatchParallelism,
+        jobStore = FlowJobStore(
+          config.jobResultMillis,
+          config.jobResultBytes,
+          config.jobSpillDir?.let { File(it) }
+        ),
+        idempotencyWindowMillis = config.idempotencyWindowMillis,
+        flowConcurrency = config.flowConcurrency,
+        flowQueueSize = config.flowQueueSize,
+        highPriorityUsers = config.highPriorityUsers,
+        rateLimits = config.rateLimits
       )
         .startServer()
         .onSuccess {
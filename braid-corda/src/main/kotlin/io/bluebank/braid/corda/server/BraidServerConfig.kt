@@ -18,7 +18,16 @@ package io.bluebank.braid.corda.server
 
 import com.fasterxml.jackson.annotation.JsonCreator
 import com.fasterxml.jackson.annotation.JsonProperty
+import io.bluebank.braid.corda.server.flow.FlowAdmission
+import io.bluebank.braid.corda.server.flow.FlowBatch
+import io.bluebank.braid.corda.server.flow.FlowJobStore
+import io.bluebank.braid.corda.server.flow.IdempotentFlowStarts
+import io.bluebank.braid.corda.server.progress.ProgressHistory
+import io.bluebank.braid.core.http.HttpServerConfig
+import io.bluebank.braid.core.http.withHttp2
 import io.bluebank.braid.core.json.BraidJacksonInit
+import io.bluebank.braid.core.ratelimit.RateLimit
+import io.vertx.core.http.HttpServerOptions
 import io.vertx.core.json.Json
 import net.corda.core.utilities.NetworkHostAndPort
 import java.io.File
@@ -31,9 +40,46 @@ data class BraidServerConfig(
   val password: String = DEFAULT_PASSWORD,
   val openApiVersion: Int = DEFAULT_OPENAPI_VERSION,
   val port: Int = DEFAULT_PORT,
-  val cordapps: List<String> = listOf(DEFAULT_CORDAPPS_DIR)
+  val cordapps: List<String> = listOf(DEFAULT_CORDAPPS_DIR),
+  val http2: Boolean = DEFAULT_HTTP2,
+  val http2MaxConcurrentStreams: Long = DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS,
+  val http2InitialWindowSize: Int = DEFAULT_HTTP2_INITIAL_WINDOW_SIZE,
+  val http2ConnectionWindowSize: Int = DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE,
+  val cacheDir: String? = DEFAULT_CACHE_DIR,
+  val rpcConnections: Int = DEFAULT_RPC_CONNECTIONS,
+  val progressHistoryMillis: Long = DEFAULT_PROGRESS_HISTORY_MILLIS,
+  val progressHistoryBytes: Long = DEFAULT_PROGRESS_HISTORY_BYTES,
+  val flowBatchParallelism: Int = DEFAULT_FLOW_BATCH_PARALLELISM,
+  val jobResultMillis: Long = DEFAULT_JOB_RESULT_MILLIS,
+  val jobResultBytes: Long = DEFAULT_JOB_RESULT_BYTES,
+  val jobSpillDir: String? = DEFAULT_JOB_SPILL_DIR,
+  val idempotencyWindowMillis: Long = DEFAULT_IDEMPOTENCY_WINDOW_MILLIS,
+  val flowConcurrency: Int = DEFAULT_FLOW_CONCURRENCY,
+  val flowQueueSize: Int = DEFAULT_FLOW_QUEUE_SIZE,
+  val highPriorityUsers: List<String> = DEFAULT_HIGH_PRIORITY_USERS,
+  val rateLimits: Map<String, RateLimit> = DEFAULT_RATE_LIMITS
 ) {
 
+  init {
+    require(flowBatchParallelism > 0) { "flowBatchParallelism must be at least 1 but was $flowBatchParallelism" }
+  }
+
+  /**
+   * the HTTP server options from system properties and environment variables,
+   * with HTTP/2 enabled if requested by this config
+   */
+  fun httpServerOptions(): HttpServerOptions {
+    val options = HttpServerConfig.buildFromPropertiesAndVars()
+    return when {
+      http2 -> options.withHttp2(
+        http2MaxConcurrentStreams,
+        http2InitialWindowSize,
+        http2ConnectionWindowSize
+      )
+      else -> options
+    }
+  }
+
   companion object {
     val DEFAULT_NODE_ADDRESS = NetworkHostAndPort.parse("localhost:10006")
     const val DEFAULT_USER = ""
@@ -43,6 +89,33 @@ data class BraidServerConfig(
     const val DEFAULT_PORT = 9000
     @Suppress("SpellCheckingInspection")
     const val DEFAULT_CORDAPPS_DIR = "./cordapps"
+    const val DEFAULT_HTTP2 = false
+    const val DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = HttpServerConfig.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS
+    const val DEFAULT_HTTP2_INITIAL_WINDOW_SIZE = HttpServerConfig.DEFAULT_HTTP2_INITIAL_WINDOW_SIZE
+    const val DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE = HttpServerConfig.DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE
+    // nothing is cached between runs unless a directory is given
+    val DEFAULT_CACHE_DIR: String? = null
+    // connections to the node shared by all requests, when braid logs in with its own user
+    const val DEFAULT_RPC_CONNECTIONS = 1
+    // recent progress of jobs and batched flows kept for clients that subscribe late, none if either is 0
+    const val DEFAULT_PROGRESS_HISTORY_MILLIS = ProgressHistory.DEFAULT_MAX_AGE_MILLIS
+    const val DEFAULT_PROGRESS_HISTORY_BYTES = ProgressHistory.DEFAULT_MAX_BYTES
+    // flows of one batch request that are started at a time, at least 1
+    const val DEFAULT_FLOW_BATCH_PARALLELISM = FlowBatch.DEFAULT_PARALLELISM
+    // how long the results of asynchronous flow jobs are kept, and how much memory they take
+    const val DEFAULT_JOB_RESULT_MILLIS = FlowJobStore.DEFAULT_TTL_MILLIS
+    const val DEFAULT_JOB_RESULT_BYTES = FlowJobStore.DEFAULT_MAX_BYTES
+    // results beyond the memory budget are dropped unless a directory is given
+    val DEFAULT_JOB_SPILL_DIR: String? = null
+    // how long a repeated invocation-id returns the result of the flow it started, 0 for never
+    const val DEFAULT_IDEMPOTENCY_WINDOW_MILLIS = IdempotentFlowStarts.DEFAULT_WINDOW_MILLIS
+    // flows started or running at a time, 0 for no limit, and flows that may wait for their turn
+    const val DEFAULT_FLOW_CONCURRENCY = FlowAdmission.DEFAULT_MAX_CONCURRENT
+    const val DEFAULT_FLOW_QUEUE_SIZE = FlowAdmission.DEFAULT_MAX_QUEUED
+    // the users whose flow-priority: high is honoured, as it is capped at normal for others
+    val DEFAULT_HIGH_PRIORITY_USERS = emptyList<String>()
+    // calls per second each user may make to each operation of a group, e.g. "vault"
+    val DEFAULT_RATE_LIMITS = emptyMap<String, RateLimit>()
     private val configFile = File("braid.conf")
 
     init {
@@ -57,7 +130,24 @@ data class BraidServerConfig(
       @JsonProperty("password") password: String? = null,
       @JsonProperty("openApiVersion") openApiVersion: Int? = null,
       @JsonProperty("port") port: Int? = null,
-      @JsonProperty("cordapps") cordapps: List<String>? = null
+      @JsonProperty("cordapps") cordapps: List<String>? = null,
+      @JsonProperty("http2") http2: Boolean? = null,
+      @JsonProperty("http2MaxConcurrentStreams") http2MaxConcurrentStreams: Long? = null,
+      @JsonProperty("http2InitialWindowSize") http2InitialWindowSize: Int? = null,
+      @JsonProperty("http2ConnectionWindowSize") http2ConnectionWindowSize: Int? = null,
+      @JsonProperty("cacheDir") cacheDir: String? = null,
+      @JsonProperty("rpcConnections") rpcConnections: Int? = null,
+      @JsonProperty("progressHistoryMillis") progressHistoryMillis: Long? = null,
+      @JsonProperty("progressHistoryBytes") progressHistoryBytes: Long? = null,
+      @JsonProperty("flowBatchParallelism") flowBatchParallelism: Int? = null,
+      @JsonProperty("jobResultMillis") jobResultMillis: Long? = null,
+      @JsonProperty("jobResultBytes") jobResultBytes: Long? = null,
+      @JsonProperty("jobSpillDir") jobSpillDir: String? = null,
+      @JsonProperty("idempotencyWindowMillis") idempotencyWindowMillis: Long? = null,
+      @JsonProperty("flowConcurrency") flowConcurrency: Int? = null,
+      @JsonProperty("flowQueueSize") flowQueueSize: Int? = null,
+      @JsonProperty("highPriorityUsers") highPriorityUsers: List<String>? = null,
+      @JsonProperty("rateLimits") rateLimits: Map<String, RateLimit>? = null
     ): BraidServerConfig {
       return BraidServerConfig(
         NetworkHostAndPort.parse(networkHostAndPort),
@@ -65,7 +155,24 @@ data class BraidServerConfig(
         password ?: DEFAULT_PASSWORD,
         openApiVersion ?: DEFAULT_OPENAPI_VERSION,
         port ?: DEFAULT_PORT,
-        cordapps ?: listOf(DEFAULT_CORDAPPS_DIR)
+        cordapps ?: listOf(DEFAULT_CORDAPPS_DIR),
+        http2 ?: DEFAULT_HTTP2,
+        http2MaxConcurrentStreams ?: DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS,
+        http2InitialWindowSize ?: DEFAULT_HTTP2_INITIAL_WINDOW_SIZE,
+        http2ConnectionWindowSize ?: DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE,
+        cacheDir ?: DEFAULT_CACHE_DIR,
+        rpcConnections ?: DEFAULT_RPC_CONNECTIONS,
+        progressHistoryMillis ?: DEFAULT_PROGRESS_HISTORY_MILLIS,
+        progressHistoryBytes ?: DEFAULT_PROGRESS_HISTORY_BYTES,
+        flowBatchParallelism ?: DEFAULT_FLOW_BATCH_PARALLELISM,
+        jobResultMillis ?: DEFAULT_JOB_RESULT_MILLIS,
+        jobResultBytes ?: DEFAULT_JOB_RESULT_BYTES,
+        jobSpillDir ?: DEFAULT_JOB_SPILL_DIR,
+        idempotencyWindowMillis ?: DEFAULT_IDEMPOTENCY_WINDOW_MILLIS,
+        flowConcurrency ?: DEFAULT_FLOW_CONCURRENCY,
+        flowQueueSize ?: DEFAULT_FLOW_QUEUE_SIZE,
+        highPriorityUsers ?: DEFAULT_HIGH_PRIORITY_USERS,
+        rateLimits ?: DEFAULT_RATE_LIMITS
       )
     }
 
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server
+
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * What [CordaClasses] needs to know about a class to classify it
+ */
+internal interface ScannedClass {
+  val name: String
+  val isInterface: Boolean
+  val isAbstract: Boolean
+  val outerClassNames: List<String>
+  fun hasAnnotation(annotationName: String): Boolean
+  fun hasDeepAnnotation(annotationName: String): Boolean
+  fun extendsSuperclass(className: String): Boolean
+  fun implementsInterface(interfaceName: String): Boolean
+}
+
+/**
+ * A class as found in a single classpath element, with only its direct supertypes and
+ * annotations, so that it can be classified against whichever classpath it ends up on
+ */
+internal data class IndexedClass(
+  val name: String,
+  val superclass: String?,
+  val interfaces: List<String>,
+  val annotations: List<String>,
+  val isInterface: Boolean,
+  val isAbstract: Boolean
+)
+
+/**
+ * The classes of one classpath element, with the [checksum] of its contents when it was
+ * scanned, the [size] and [lastModified] time of the file it was checksummed from, and the
+ * time the scan took
+ */
+internal data class ClasspathElementIndex(
+  val path: String,
+  val checksum: Long,
+  val size: Long,
+  val lastModified: Long,
+  val scanMillis: Long,
+  val classes: List<IndexedClass>
+) {
+  val cordapp: String by lazy { File(path).nameWithoutExtension.removeVersion() }
+}
+
+/**
+ * The classes of a whole classpath, merged from the index of each of its [elements]. As on the
+ * classpath, the first element to declare a class wins.
+ */
+internal class ClassIndex(val elements: List<ClasspathElementIndex>) {
+
+  private val classes = HashMap<String, Pair<ClasspathElementIndex, IndexedClass>>().apply {
+    elements.forEach { element ->
+      element.classes.forEach { putIfAbsent(it.name, element to it) }
+    }
+  }
+
+  /**
+   * @return every class of the classpath, with the cordapp of the element it was found in
+   */
+  fun classes(): Sequence<Pair<String, ScannedClass>> {
+    return elements.asSequence().flatMap { element ->
+      element.classes.asSequence()
+        .filter { classes[it.name]?.first === element }
+        .map { element.cordapp to IndexScannedClass(it) }
+    }
+  }
+
+  private fun find(name: String?) = name?.let { classes[it]?.second }
+
+  private inner class IndexScannedClass(private val indexed: IndexedClass) : ScannedClass {
+    override val name get() = indexed.name
+    override val isInterface get() = indexed.isInterface
+    override val isAbstract get() = indexed.isAbstract
+    override val outerClassNames: List<String>
+      get() = name.indices.filter { name[it] == '$' }.map { name.substring(0, it) }
+
+    override fun hasAnnotation(annotationName: String) =
+      indexed.annotations.contains(annotationName)
+
+    override fun hasDeepAnnotation(annotationName: String): Boolean {
+      return hasAnnotation(annotationName) ||
+        (listOfNotNull(indexed.superclass) + indexed.interfaces).any { supertype ->
+          find(supertype)?.let { IndexScannedClass(it).hasDeepAnnotation(annotationName) } == true
+        }
+    }
+
+    override fun extendsSuperclass(className: String): Boolean {
+      var superclass = indexed.superclass
+      while (superclass != null) {
+        if (superclass == className) return true
+        superclass = find(superclass)?.superclass
+      }
+      return false
+    }
+
+    override fun implementsInterface(interfaceName: String): Boolean {
+      val visited = HashSet<String>()
+      val pending = ArrayList<String>().apply {
+        addAll(indexed.interfaces)
+        indexed.superclass?.let { add(it) }
+      }
+      while (pending.isNotEmpty()) {
+        val next = pending.removeAt(pending.size - 1)
+        if (!visited.add(next)) continue
+        if (next == interfaceName) return true
+        find(next)?.let { type ->
+          pending.addAll(type.interfaces)
+          type.superclass?.let { pending.add(it) }
+        }
+      }
+      return false
+    }
+  }
+
+  companion object {
+    private const val MAGIC = 0x62636932 // "bci2"
+
+    fun write(file: File, elements: List<ClasspathElementIndex>) {
+      DataOutputStream(GZIPOutputStream(file.outputStream()).buffered()).use { output ->
+        output.writeInt(MAGIC)
+        output.writeInt(elements.size)
+        elements.forEach { element ->
+          output.writeUTF(element.path)
+          output.writeLong(element.checksum)
+          output.writeLong(element.size)
+          output.writeLong(element.lastModified)
+          output.writeLong(element.scanMillis)
+          output.writeInt(element.classes.size)
+          element.classes.forEach { indexed ->
+            output.writeUTF(indexed.name)
+            output.writeUTF(indexed.superclass ?: "")
+            output.writeStrings(indexed.interfaces)
+            output.writeStrings(indexed.annotations)
+            output.writeBoolean(indexed.isInterface)
+            output.writeBoolean(indexed.isAbstract)
+          }
+        }
+      }
+    }
+
+    fun read(file: File): List<ClasspathElementIndex> {
+      return DataInputStream(GZIPInputStream(file.inputStream()).buffered()).use { input ->
+        check(input.readInt() == MAGIC) { "not a class index: $file" }
+        (0 until input.readInt()).map {
+          ClasspathElementIndex(
+            path = input.readUTF(),
+            checksum = input.readLong(),
+            size = input.readLong(),
+            lastModified = input.readLong(),
+            scanMillis = input.readLong(),
+            classes = (0 until input.readInt()).map {
+              IndexedClass(
+                name = input.readUTF(),
+                superclass = input.readUTF().takeIf { it.isNotEmpty() },
+                interfaces = input.readStrings(),
+                annotations = input.readStrings(),
+                isInterface = input.readBoolean(),
+                isAbstract = input.readBoolean()
+              )
+            }
+          )
+        }
+      }
+    }
+
+    private fun DataOutputStream.writeStrings(values: List<String>) {
+      writeInt(values.size)
+      values.forEach { writeUTF(it) }
+    }
+
+    private fun DataInputStream.readStrings() = (0 until readInt()).map { readUTF() }
+  }
+}
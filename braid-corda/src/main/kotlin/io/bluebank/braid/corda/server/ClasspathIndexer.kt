@@ -0,0 +1,176 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server
+
+import io.bluebank.braid.core.logging.loggerFor
+import io.github.classgraph.ClassGraph
+import net.corda.core.utilities.ProgressTracker
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.stream.Collectors
+import java.util.zip.CRC32
+import java.util.zip.CheckedInputStream
+
+/**
+ * Indexes the classes of a [classLoader] one classpath element at a time, in parallel on
+ * [pool]. If [indexFile] is given, the index is kept there between runs, and only the elements
+ * whose checksum has changed since are scanned again. A jar is only checksummed when its size
+ * or modification time differ from those in the index.
+ */
+internal class ClasspathIndexer(
+  private val classLoader: ClassLoader,
+  private val indexFile: File? = null,
+  private val pool: ForkJoinPool = ForkJoinPool.commonPool()
+) {
+
+  companion object {
+    private val log = loggerFor<ClasspathIndexer>()
+    private const val NO_CHECKSUM = -1L
+
+    private val blacklistedPackages = arrayOf(
+      "net.corda.internal",
+      "net.corda.client",
+      "net.corda.core.internal",
+      "net.corda.nodeapi.internal",
+      "net.corda.serialization.internal",
+      "net.corda.testing",
+      "net.corda.common.configuration.parsing.internal",
+      "net.corda.finance.internal",
+      "net.corda.common.validation.internal",
+      "net.corda.client.rpc.internal",
+      "net.corda.core.cordapp",
+      "net.corda.core.messaging",
+      "net.corda.node.services.statemachine",
+      "net.corda.node.migration",
+      "net.corda.node.internal",
+      "net.corda.core.flows"
+    )
+  }
+
+  fun index(): ClassIndex {
+    val start = System.currentTimeMillis()
+    val previous = readIndex().associateBy { it.path }
+    val files = ClassGraph().addClassLoader(classLoader).classpathFiles
+    // elements are independent, so are checksummed and scanned in parallel, keeping their order
+    val indexed = pool.submit(Callable {
+      files.parallelStream().map { file -> index(file, previous[file.path]) }
+        .collect(Collectors.toList())
+    }).get()
+    val elements = indexed.map { it.first }
+    val scanned = indexed.count { !it.second }
+    val savedMillis = indexed.filter { it.second }.map { it.first.scanMillis }.sum()
+    if (elements.any { previous[it.path] !== it }) writeIndex(elements)
+    log.info("indexed ${elements.size} classpath elements in ${System.currentTimeMillis() - start}ms - scanned $scanned, reused ${elements.size - scanned} from the index saving ${savedMillis}ms of scanning")
+    return ClassIndex(elements)
+  }
+
+  /**
+   * @return the index of [file], and whether it was reused from [previous] rather than scanned
+   */
+  private fun index(
+    file: File,
+    previous: ClasspathElementIndex?
+  ): Pair<ClasspathElementIndex, Boolean> {
+    // read before the contents, so that a change while checksumming is seen on the next run
+    val size = file.length()
+    val lastModified = file.lastModified()
+    if (!file.isFile) return scan(file, NO_CHECKSUM, size, lastModified) to false
+    if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+      return previous to true
+    }
+    // new, or touched but possibly not changed - e.g. copied again by a deployment
+    val checksum = file.checksum()
+    if (previous != null && previous.checksum == checksum) {
+      return previous.copy(size = size, lastModified = lastModified) to true
+    }
+    return scan(file, checksum, size, lastModified) to false
+  }
+
+  private fun scan(
+    file: File,
+    checksum: Long,
+    size: Long,
+    lastModified: Long
+  ): ClasspathElementIndex {
+    val start = System.currentTimeMillis()
+    val classes = ClassGraph()
+      .overrideClasspath(file.path)
+      .enableClassInfo()
+      .enableAnnotationInfo()
+      .enableExternalClasses()
+      .blacklistClasses(ProgressTracker::class.java.name)
+      .blacklistPackages(*blacklistedPackages)
+      .scan(1) // elements are already scanned in parallel
+      .use { result ->
+        result.allClasses.filter { !it.isExternalClass }.map { classInfo ->
+          IndexedClass(
+            name = classInfo.name,
+            superclass = classInfo.superclass?.name,
+            interfaces = classInfo.interfaces.directOnly().names,
+            annotations = classInfo.annotationInfo.directOnly().names,
+            isInterface = classInfo.isInterfaceOrAnnotation,
+            isAbstract = classInfo.isAbstract
+          )
+        }
+      }
+    return ClasspathElementIndex(
+      file.path,
+      checksum,
+      size,
+      lastModified,
+      System.currentTimeMillis() - start,
+      classes
+    )
+  }
+
+  private fun readIndex(): List<ClasspathElementIndex> {
+    if (indexFile == null || !indexFile.exists()) return emptyList()
+    return try {
+      ClassIndex.read(indexFile)
+    } catch (e: Throwable) {
+      log.warn("ignoring unreadable class index $indexFile", e)
+      emptyList()
+    }
+  }
+
+  private fun writeIndex(elements: List<ClasspathElementIndex>) {
+    if (indexFile == null) return
+    try {
+      indexFile.absoluteFile.parentFile.mkdirs()
+      val temp = File.createTempFile("class-index-", ".tmp", indexFile.absoluteFile.parentFile)
+      ClassIndex.write(temp, elements)
+      Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch (e: Throwable) {
+      log.warn("failed to write class index $indexFile", e)
+    }
+  }
+
+  /**
+   * @return a checksum of the contents of a jar
+   */
+  private fun File.checksum(): Long {
+    return CheckedInputStream(inputStream(), CRC32()).use { input ->
+      val buffer = ByteArray(64 * 1024)
+      while (input.read(buffer) >= 0) {
+        // reading updates the checksum
+      }
+      input.checksum.value
+    }
+  }
+}
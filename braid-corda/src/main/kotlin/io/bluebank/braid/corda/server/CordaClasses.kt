@@ -15,7 +15,7 @@
  */
 package io.bluebank.braid.corda.server
 
-import io.github.classgraph.ClassGraph
+import io.bluebank.braid.core.annotation.NonBlocking
 import io.github.classgraph.ClassInfo
 import net.corda.core.CordaInternal
 import net.corda.core.contracts.ContractState
@@ -26,77 +26,98 @@ import net.corda.core.internal.toMultiMap
 import net.corda.core.serialization.CordaSerializable
 import net.corda.core.serialization.SerializeAsToken
 import net.corda.core.utilities.ProgressTracker
+import java.io.File
+import java.lang.reflect.Type
+import java.util.concurrent.atomic.AtomicReferenceArray
+import kotlin.reflect.KClass
 
 /**
  * Retrieves a set of jar module names that are cordapps
+ *
+ * The classes are found from an index of each classpath element; if [indexFile] is given the
+ * index is kept there so that later runs only scan the elements that have changed.
  */
-class CordaClasses(private val classLoader: ClassLoader = Thread.currentThread().contextClassLoader) {
+class CordaClasses(
+  private val classLoader: ClassLoader = Thread.currentThread().contextClassLoader,
+  private val indexFile: File? = null
+) {
+  @NonBlocking
   fun cordapps(): List<String> {
     return lazyCordapps
   }
 
+  @NonBlocking
   fun flowsForCordapp(cordapp: String): List<String>? {
-    return flowsByCordapp[cordapp]?.map { it.name } ?: emptyList()
+    return flowsByCordapp[cordapp] ?: emptyList()
   }
 
   val flowClassesByCordapp by lazy {
-    flows.map { it.classpathElementFile.nameWithoutExtension.removeVersion() to classLoader.loadClass(it.name).kotlin }
+    flows.map { (cordapp, name) -> cordapp to classLoader.loadClass(name).kotlin }
       .sortedBy { it.first }
   }
 
+  /**
+   * the names of the flow classes of each cordapp, without loading any of them
+   */
+  val flowClassNamesByCordapp: Map<String, List<String>> by lazy {
+    flowsByCordapp.toSortedMap()
+  }
+
+  /**
+   * loads a class named by this scan, such as one of [flowClassNamesByCordapp]
+   */
+  fun loadClass(name: String): KClass<out Any> = classLoader.loadClass(name).kotlin
+
   val contractStateClasses by lazy {
-    contractStates.map { classLoader.loadClass(it.name).kotlin }
-  }
-
-  val cordaSerializableClasses by lazy {
-    cordaSerializable.map { classLoader.loadClass(it.name).kotlin }
-  }
-
-  private val classGraph by lazy {
-    ClassGraph()
-      .addClassLoader(classLoader)
-      .enableClassInfo()
-      .enableAnnotationInfo()
-      .blacklistClasses(ProgressTracker::class.java.name)
-      .blacklistPackages(
-        "net.corda.internal",
-        "net.corda.client",
-        "net.corda.core.internal",
-        "net.corda.nodeapi.internal",
-        "net.corda.serialization.internal",
-        "net.corda.testing",
-        "net.corda.common.configuration.parsing.internal",
-        "net.corda.finance.internal",
-        "net.corda.common.validation.internal",
-        "net.corda.client.rpc.internal",
-        "net.corda.core.cordapp",
-        "net.corda.core.messaging",
-        "net.corda.node.services.statemachine",
-        "net.corda.node.migration",
-        "net.corda.node.internal",
-        "net.corda.core.flows"
-      )
-      .scan()
+    contractStates.map { (_, name) -> classLoader.loadClass(name).kotlin }
+  }
+
+  /**
+   * the serializable classes, each loaded only when first accessed
+   */
+  val cordaSerializableTypes: List<Type> get() = serializableClasses
+
+  val cordaSerializableClasses: List<KClass<out Any>> by lazy {
+    object : AbstractList<KClass<out Any>>() {
+      override val size get() = serializableClasses.size
+      override fun get(index: Int) = serializableClasses[index].kotlin
+    }
+  }
+
+  private val serializableClasses by lazy {
+    LoadedOnAccess(classLoader, cordaSerializable.map { it.second })
+  }
+
+  private val classIndex by lazy {
+    ClasspathIndexer(classLoader, indexFile).index()
+  }
+
+  // (cordapp, class name) of each class matching the predicate
+  private fun classesWhere(predicate: (ScannedClass) -> Boolean): List<Pair<String, String>> {
+    return classIndex.classes()
+      .filter { (_, scanned) -> predicate(scanned) }
+      .map { (cordapp, scanned) -> cordapp to scanned.name }
+      .toList()
   }
 
   private val contractStates by lazy {
-    classGraph.getClassesImplementing(ContractState::class.java.name)
+    classesWhere { !it.isInterface && it.implementsInterface(ContractState::class.java.name) }
   }
 
   private val cordaSerializable by lazy {
-    classGraph.allClasses.filter { isAppropriateForSerialization(it) }
+    classesWhere { isAppropriateForSerialization(it) }
   }
 
   private val flows by lazy {
-    classGraph.getClassesWithAnnotation(StartableByRPC::class.qualifiedName)
+    classesWhere { it.hasAnnotation(StartableByRPC::class.java.name) }
   }
 
   private val lazyCordapps by lazy {
-    (contractStates + flows).map { it.classpathElementFile.nameWithoutExtension.removeVersion() }.distinct().sorted()
+    (contractStates + flows).map { it.first }.distinct().sorted()
   }
 
   private val flowsByCordapp by lazy {
-    flows.map { it.classpathElementFile.nameWithoutExtension.removeVersion() to it }.toMultiMap()
+    flows.toMultiMap()
   }
 
   companion object {
@@ -104,11 +125,15 @@ class CordaClasses(private val classLoader: ClassLoader = Thread.currentThread()
     val isCompanionClass = Regex(".*\\$" + "Companion")::matches
     val isKotlinFileClass = Regex(".*Kt$")::matches
 
-    private fun ClassInfo.isCordaSerializable(): Boolean =
+    private fun ScannedClass.isCordaSerializable(): Boolean =
       !this.implementsInterface(SerializeAsToken::class.java.name) &&
         hasDeepAnnotation(CordaSerializable::class.java.name)
 
     internal fun isAppropriateForSerialization(it: ClassInfo): Boolean {
+      return isAppropriateForSerialization(it.asScannedClass())
+    }
+
+    internal fun isAppropriateForSerialization(it: ScannedClass): Boolean {
       val result = it.isCordaSerializable() &&
         !it.hasAnnotation(CordaInternal::class.java.name) &&
         !it.isInterface &&
@@ -124,13 +149,43 @@ class CordaClasses(private val classLoader: ClassLoader = Thread.currentThread()
         !isKotlinFileClass(it.name) &&
         (it.name != ProgressTracker.Step::class.java.name) &&
         (it.name != ProgressTracker::class.java.name) &&
-        it.outerClasses.none { it.name == ProgressTracker::class.java.name }
+        it.outerClassNames.none { it == ProgressTracker::class.java.name }
       return result
     }
 
   }
 }
 
+/**
+ * The classes named by [names], each loaded by [classLoader] when first accessed
+ */
+private class LoadedOnAccess(
+  private val classLoader: ClassLoader,
+  private val names: List<String>
+) : AbstractList<Class<*>>() {
+  private val classes = AtomicReferenceArray<Class<*>>(names.size)
+
+  override val size get() = names.size
+
+  override fun get(index: Int): Class<*> {
+    return classes.get(index) ?: classLoader.loadClass(names[index]).also { classes.set(index, it) }
+  }
+}
+
+private fun ClassInfo.asScannedClass(): ScannedClass {
+  val classInfo = this
+  return object : ScannedClass {
+    override val name: String get() = classInfo.name
+    override val isInterface get() = classInfo.isInterface
+    override val isAbstract get() = classInfo.isAbstract
+    override val outerClassNames: List<String> get() = classInfo.outerClasses.names
+    override fun hasAnnotation(annotationName: String) = classInfo.hasAnnotation(annotationName)
+    override fun hasDeepAnnotation(annotationName: String) = classInfo.hasDeepAnnotation(annotationName)
+    override fun extendsSuperclass(className: String) = classInfo.extendsSuperclass(className)
+    override fun implementsInterface(interfaceName: String) = classInfo.implementsInterface(interfaceName)
+  }
+}
+
 internal fun ClassInfo.hasDeepAnnotation(annotationName: String): Boolean {
   return hasAnnotation(annotationName) ||
     superClassHasDeepAnnotation(annotationName) ||
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server
+
+import io.bluebank.braid.core.annotation.NonBlocking
+import io.netty.handler.codec.http.HttpHeaderNames.RETRY_AFTER
+import io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE
+import io.vertx.core.http.HttpServerResponse
+import io.vertx.ext.web.RoutingContext
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Tracks which cordapps have finished registering their endpoints, so that the endpoints of
+ * one cordapp can be served while others are still registering
+ */
+class CordappReadiness {
+
+  companion object {
+    private const val RETRY_AFTER_SECONDS = 1
+  }
+
+  private val ready = ConcurrentHashMap<String, Boolean>()
+  private val cordappsByFlow = ConcurrentHashMap<String, String>()
+
+  /**
+   * @param flows the class names of the flows of [cordapp], for [cordappOf]
+   */
+  fun pending(cordapp: String, flows: Collection<String> = emptyList()) {
+    flows.forEach { cordappsByFlow[it] = cordapp }
+    ready.putIfAbsent(cordapp, false)
+  }
+
+  fun ready(cordapp: String) {
+    ready[cordapp] = true
+  }
+
+  /**
+   * cordapps that were never registered as [pending] are considered ready
+   */
+  fun isReady(cordapp: String) = ready[cordapp] != false
+
+  /**
+   * @return the cordapp of the flow class named [flow], or null if it was not given to [pending]
+   */
+  fun cordappOf(flow: String): String? = cordappsByFlow[flow]
+
+  /**
+   * @return each cordapp that has endpoints, with whether they can be called yet
+   */
+  @NonBlocking
+  fun readiness(): Map<String, Boolean> = ready.toSortedMap()
+
+  /**
+   * passes requests for ready cordapps, named by the [cordappParam] path parameter, to the
+   * next handler and fails the rest with `503 Service Unavailable` and a `Retry-After` header
+   */
+  fun handler(cordappParam: String): (RoutingContext) -> Unit = { context ->
+    val cordapp = context.pathParam(cordappParam)
+    when {
+      cordapp == null || isReady(cordapp) -> context.next()
+      else -> unavailable(context.response(), cordapp)
+    }
+  }
+
+  /**
+   * ends [response] with `503 Service Unavailable` and a `Retry-After` header, as [cordapp]
+   * is not ready
+   */
+  fun unavailable(response: HttpServerResponse, cordapp: String) {
+    response
+      .setStatusCode(SERVICE_UNAVAILABLE.code())
+      .putHeader(RETRY_AFTER, RETRY_AFTER_SECONDS.toString())
+      .end("cordapp $cordapp is not ready yet")
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST
+import io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE
+import io.swagger.v3.oas.annotations.media.Schema
+import io.vertx.core.Future
+import io.vertx.ext.auth.User
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import java.util.ArrayDeque
+
+enum class FlowPriority {
+  HIGH,
+  NORMAL,
+  LOW;
+
+  companion object {
+    const val HEADER = "flow-priority"
+
+    fun parse(value: String?): FlowPriority? = value?.let { name ->
+      values().firstOrNull { it.name.equals(name.trim(), ignoreCase = true) }
+        ?: throw HttpStatusException(
+          BAD_REQUEST.code(),
+          "unknown $HEADER $name, expected one of ${values().joinToString { it.name.toLowerCase() }}"
+        )
+    }
+  }
+}
+
+data class FlowAdmissionMetrics(
+  @Schema(description = "maximum number of flows being started or running at a time")
+  val maxConcurrent: Int,
+  @Schema(description = "number of flows being started or running")
+  val running: Int,
+  @Schema(description = "number of flows waiting to start, by priority")
+  val queued: Map<FlowPriority, Int>,
+  @Schema(description = "maximum number of flows waiting to start, beyond which flows are refused")
+  val maxQueued: Int,
+  @Schema(description = "number of flows admitted")
+  val admitted: Long,
+  @Schema(description = "number of flows refused because too many were waiting")
+  val rejected: Long,
+  @Schema(description = "mean time that the admitted flows waited in milliseconds")
+  val meanWaitMillis: Double,
+  @Schema(description = "longest time that an admitted flow waited in milliseconds")
+  val maxWaitMillis: Long,
+  @Schema(description = "time that the longest waiting flow has waited so far in milliseconds")
+  val oldestWaitMillis: Long
+)
+
+/**
+ * Limits the number of flows that are started or running at a time to [maxConcurrent], so
+ * that bursts of requests queue here rather than in the node's flow state machine. Up to
+ * [maxQueued] flows wait, after which flows are refused with `503 Service Unavailable`.
+ *
+ * Waiting flows are started by [FlowPriority] and, within a priority, in turn per user, so
+ * that one user's batch does not hold up everyone else's flows. The priority is from the
+ * `flow-priority` header, `normal` if there is none, up to the highest that [priorityOf] the
+ * user allows, which is `normal` for anonymous callers and for users it returns null for.
+ * Queued flows are started through [dispatch], as the flow that made room completes on
+ * whichever thread its result arrived on; by default they start on that thread, one after
+ * another. A [maxConcurrent] of 0 turns this off.
+ */
+class FlowAdmission(
+  private val maxConcurrent: Int = DEFAULT_MAX_CONCURRENT,
+  private val maxQueued: Int = DEFAULT_MAX_QUEUED,
+  private val userName: (User) -> String? = { null },
+  private val priorityOf: (User) -> FlowPriority? = { null },
+  private val dispatch: (() -> Unit) -> Unit = TrampolineDispatch(),
+  private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+
+  companion object {
+    const val DEFAULT_MAX_CONCURRENT = 32
+    const val DEFAULT_MAX_QUEUED = 1000
+  }
+
+  private class Waiting(val start: () -> Future<Any?>, val enqueuedAt: Long) {
+    val result: Future<Any?> = Future.future()
+  }
+
+  // per priority, the users with waiting flows in the order that they are next served
+  private val queues = FlowPriority.values().map { LinkedHashMap<String?, ArrayDeque<Waiting>>() }
+  private var running = 0
+  private var queued = 0
+  private var admitted = 0L
+  private var rejected = 0L
+  private var totalWaitMillis = 0L
+  private var maxWaitMillis = 0L
+
+  /**
+   * calls [start] once the flow is admitted, and returns the flow's result
+   */
+  fun admit(user: User?, priority: FlowPriority?, start: () -> Future<Any?>): Future<Any?> {
+    if (maxConcurrent <= 0) return start()
+    val waiting = Waiting(start, clock())
+    val now = synchronized(this) {
+      when {
+        running < maxConcurrent -> {
+          running++
+          admitted(waiting)
+          true
+        }
+        queued >= maxQueued -> {
+          rejected++
+          return Future.failedFuture(
+            HttpStatusException(SERVICE_UNAVAILABLE.code(), "too many flows are waiting to start")
+          )
+        }
+        else -> {
+          queues[priorityFor(user, priority).ordinal].getOrPut(user?.let(userName)) { ArrayDeque() }.add(waiting)
+          queued++
+          false
+        }
+      }
+    }
+    if (now) run(waiting)
+    return waiting.result
+  }
+
+  fun metrics(): FlowAdmissionMetrics = synchronized(this) {
+    val now = clock()
+    val heads = queues.flatMap { users -> users.values.map { it.peekFirst() } }
+    FlowAdmissionMetrics(
+      maxConcurrent = maxConcurrent,
+      running = running,
+      queued = FlowPriority.values().associate { priority ->
+        priority to queues[priority.ordinal].values.sumBy { it.size }
+      },
+      maxQueued = maxQueued,
+      admitted = admitted,
+      rejected = rejected,
+      meanWaitMillis = if (admitted == 0L) 0.0 else totalWaitMillis.toDouble() / admitted,
+      maxWaitMillis = maxWaitMillis,
+      oldestWaitMillis = heads.map { now - it.enqueuedAt }.max() ?: 0L
+    )
+  }
+
+  private fun run(waiting: Waiting) {
+    val started = try {
+      waiting.start()
+    } catch (e: Throwable) {
+      Future.failedFuture<Any?>(e)
+    }
+    started.setHandler {
+      release()
+      waiting.result.handle(it)
+    }
+  }
+
+  private fun release() {
+    val next = synchronized(this) {
+      poll().also {
+        when (it) {
+          null -> running--
+          else -> admitted(it)
+        }
+      }
+    }
+    next?.let { dispatch { run(it) } }
+  }
+
+  // a lower priority than allowed can always be asked for, a higher one is capped
+  private fun priorityFor(user: User?, requested: FlowPriority?): FlowPriority {
+    val allowed = user?.let(priorityOf) ?: FlowPriority.NORMAL
+    val wanted = requested ?: FlowPriority.NORMAL
+    return if (wanted.ordinal < allowed.ordinal) allowed else wanted
+  }
+
+  // the first waiting flow of the highest priority, taking turns between its users
+  private fun poll(): Waiting? {
+    val users = queues.firstOrNull { it.isNotEmpty() } ?: return null
+    val (user, waiting) = users.entries.first()
+    val next = waiting.removeFirst()
+    users.remove(user)
+    if (waiting.isNotEmpty()) users[user] = waiting
+    queued--
+    return next
+  }
+
+  private fun admitted(waiting: Waiting) {
+    val wait = clock() - waiting.enqueuedAt
+    admitted++
+    totalWaitMillis += wait
+    maxWaitMillis = maxOf(maxWaitMillis, wait)
+  }
+}
+
+/**
+ * Runs each dispatched start on the calling thread, but only once the start that dispatched
+ * it has returned, so that a long run of flows that fail at once doesn't grow the stack
+ */
+private class TrampolineDispatch : (() -> Unit) -> Unit {
+  private val pending = ThreadLocal<ArrayDeque<() -> Unit>>()
+
+  override fun invoke(start: () -> Unit) {
+    pending.get()?.let {
+      it.add(start)
+      return
+    }
+    val queue = ArrayDeque<() -> Unit>()
+    pending.set(queue)
+    try {
+      var next: (() -> Unit)? = start
+      while (next != null) {
+        next()
+        next = queue.poll()
+      }
+    } finally {
+      pending.remove()
+    }
+  }
+}
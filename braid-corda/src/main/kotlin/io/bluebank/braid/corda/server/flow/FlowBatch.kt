@@ -0,0 +1,166 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.corda.server.CordappReadiness
+import io.bluebank.braid.core.annotation.NonBlocking
+import io.bluebank.braid.core.http.end
+import io.bluebank.braid.core.logging.loggerFor
+import io.swagger.v3.oas.annotations.Operation
+import io.swagger.v3.oas.annotations.media.ArraySchema
+import io.swagger.v3.oas.annotations.media.Content
+import io.swagger.v3.oas.annotations.media.Schema
+import io.swagger.v3.oas.annotations.parameters.RequestBody
+import io.swagger.v3.oas.annotations.responses.ApiResponse
+import io.vertx.core.Future
+import io.vertx.core.http.HttpHeaders
+import io.vertx.core.json.Json
+import io.vertx.ext.web.RoutingContext
+import java.lang.reflect.InvocationTargetException
+import javax.ws.rs.core.MediaType
+
+data class FlowBatchItem(
+  @Schema(description = "The flow class name", example = "net.corda.finance.flows.CashIssueFlow")
+  val flow: String,
+  @Schema(description = "The payload, as posted to the flow's own endpoint")
+  val payload: Map<String, Any?> = emptyMap(),
+  @Schema(description = "The invocation-id, as passed in the header to the flow's own endpoint")
+  val invocationId: String? = null
+)
+
+data class FlowBatchResult(
+  @Schema(description = "The position of the item in the batch")
+  val index: Int,
+  val flow: String,
+  val invocationId: String? = null,
+  @Schema(description = "The flow's return value, if it succeeded")
+  val result: Any? = null,
+  @Schema(description = "Why the flow failed to start or to complete")
+  val error: String? = null
+)
+
+/**
+ * Starts a batch of flows, at most [parallelism] at a time, with the [initiators] of the
+ * flows' own endpoints, and streams a [FlowBatchResult] per item as newline delimited JSON
+ * as each flow completes. As on the flows' own endpoints, a batch with a flow of a cordapp
+ * that is not ready, according to [readiness], fails with `503 Service Unavailable`.
+ */
+class FlowBatch(
+  private val initiators: FlowInitiators,
+  private val parallelism: Int = DEFAULT_PARALLELISM,
+  private val readiness: CordappReadiness = CordappReadiness()
+) {
+
+  companion object {
+    private val log = loggerFor<FlowBatch>()
+    const val DEFAULT_PARALLELISM = 8
+  }
+
+  init {
+    require(parallelism > 0) { "flows of a batch must be started at least one at a time but was given $parallelism" }
+  }
+
+  @Operation(
+    description = "Starts a batch of flows concurrently and streams back the result of each, " +
+      "as newline delimited JSON, in the order they complete",
+    requestBody = RequestBody(
+      content = [Content(
+        mediaType = MediaType.APPLICATION_JSON,
+        array = ArraySchema(schema = Schema(implementation = FlowBatchItem::class))
+      )]
+    ),
+    responses = [ApiResponse(
+      content = [Content(
+        mediaType = "application/x-ndjson",
+        schema = Schema(implementation = FlowBatchResult::class)
+      )]
+    )]
+  )
+  @NonBlocking
+  fun handle(context: RoutingContext) {
+    val response = context.response()
+    val items = try {
+      Json.decodeValue(context.bodyAsString, Array<FlowBatchItem>::class.java).toList()
+    } catch (e: Exception) {
+      response.end(e, 400)
+      return
+    }
+    val pending = items.mapNotNull { readiness.cordappOf(it.flow) }
+      .firstOrNull { !readiness.isReady(it) }
+    if (pending != null) {
+      readiness.unavailable(response, pending)
+      return
+    }
+    response.setChunked(true).putHeader(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+    if (items.isEmpty()) {
+      response.end()
+      return
+    }
+
+    val vertx = context.vertx()
+    // flows may complete on other threads, so the batch's state is kept on this context
+    val vertxContext = vertx.orCreateContext
+    val user = context.user()
+    val priority = context.request().getHeader(FlowPriority.HEADER)
+    var next = 0
+    var running = 0
+    var closed = false
+    response.closeHandler { closed = true }
+
+    fun launch() {
+      while (!closed && running < parallelism && next < items.size) {
+        if (response.writeQueueFull()) {
+          response.drainHandler { launch() }
+          return
+        }
+        val index = next++
+        val item = items[index]
+        running++
+        vertx.executeBlocking<Future<Any?>>({
+          it.complete(initiators.start(item.flow, item.payload, item.invocationId, user, priority))
+        }, false) { started ->
+          val finished = when {
+            started.succeeded() -> started.result()
+            else -> Future.failedFuture(started.cause())
+          }
+          finished.setHandler { result ->
+            vertxContext.runOnContext {
+              running--
+              if (!closed) {
+                response.write(Json.encode(resultOf(index, item, result.result(), result.cause())) + "\n")
+                when {
+                  running == 0 && next == items.size -> response.end()
+                  else -> launch()
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    launch()
+  }
+
+  private fun resultOf(index: Int, item: FlowBatchItem, result: Any?, error: Throwable?) =
+    when (error) {
+      null -> FlowBatchResult(index, item.flow, item.invocationId, result = result)
+      else -> {
+        val cause = (error as? InvocationTargetException)?.targetException ?: error
+        log.warn("batched flow ${item.flow} failed", cause)
+        FlowBatchResult(index, item.flow, item.invocationId, error = cause.message ?: cause.toString())
+      }
+    }
+}
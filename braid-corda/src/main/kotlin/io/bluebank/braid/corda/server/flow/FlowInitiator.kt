@@ -16,6 +16,7 @@
 package io.bluebank.braid.corda.server.flow
 
 import io.bluebank.braid.corda.server.progress.ProgressNotification
+import io.bluebank.braid.corda.server.progress.ProgressTopics
 import io.bluebank.braid.corda.server.rpc.RPCCallable
 import io.bluebank.braid.corda.server.rpc.RPCInvocationParameter
 import io.bluebank.braid.corda.services.FlowStarterAdapter
@@ -24,7 +25,6 @@ import io.bluebank.braid.core.logging.loggerFor
 import io.bluebank.braid.core.synth.*
 import io.vertx.core.Future
 import io.vertx.core.eventbus.EventBus
-import io.vertx.core.json.Json
 import io.vertx.ext.auth.User
 import net.corda.core.flows.FlowLogic
 import net.corda.core.toObservable
@@ -35,12 +35,28 @@ import kotlin.reflect.KClass
 
 class FlowInitiator(
   private val getFlowStarter: (User?) -> FlowStarterAdapter,
-  private val eventBus: EventBus,
-  private val isAuth: Boolean
+  private val progress: ProgressTopics,
+  private val isAuth: Boolean,
+  private val starts: IdempotentFlowStarts = IdempotentFlowStarts(),
+  // no limit unless one is given, with the dispatch suited to where the flows complete
+  private val admission: FlowAdmission = FlowAdmission(maxConcurrent = 0)
 ) {
 
+  constructor(
+    getFlowStarter: (User?) -> FlowStarterAdapter,
+    eventBus: EventBus,
+    isAuth: Boolean
+  ) : this(getFlowStarter, ProgressTopics(eventBus), isAuth)
+
   companion object {
-    val TOPIC = "braid-progress-tracker-message-topic-id"
+    val TOPIC = ProgressTopics.TOPIC
+
+    /**
+     * the types of flow constructor parameters that are bound by braid rather than being
+     * fields of the flow's payload
+     */
+    val boundParameterTypes: Map<Class<*>, Any>
+      get() = mapOf<Class<*>, Any>(ProgressTracker::class.java to ProgressTracker())
   }
 
   private val log = loggerFor<FlowInitiator>()
@@ -55,11 +71,14 @@ class FlowInitiator(
     // trampoline is to make the kClass constructor look like a callable function
     val fn = trampoline(
       constructor = constructor,
-      boundTypes = createBoundParameterTypes(),
+      boundTypes = boundParameterTypes,
       additionalAnnotations = additionalAnnotations,
       // This says that `@Context user: User` is an additional parameter; I couldn't make
       // it work properly as a `User?` type, so don't specify it at all if `!isAuth`.
-      additionalParams = listOf(RPCInvocationParameter.invocationId()) + possibleUserParameter()
+      additionalParams = listOf(
+        RPCInvocationParameter.invocationId(),
+        RPCInvocationParameter.priority()
+      ) + possibleUserParameter()
     ) {
       // this is passed to the transform parameter of the trampoline function
       // it's the body of the function which is invoked at run-time
@@ -71,37 +90,52 @@ class FlowInitiator(
 
       // because of additionalParams above, expect this extra `user` parameter at run-time
       val invocationId = parameters.first() as String?
-      val user: User? = if (isAuth) parameters.get(1) as User else null
+      val priority = FlowPriority.parse(parameters.get(1) as String?)
+      val user: User? = if (isAuth) parameters.get(2) as User else null
 
-      // drop the user parameter, and filter out the ProgressTracker if there is one
+      // drop the additional parameters, and filter out the ProgressTracker if there is one
       val excludeProgressTracker = parameters
-        .drop(if (isAuth) 2 else 1)
+        .drop(if (isAuth) 3 else 2)
         .filter { p -> p !is ProgressTracker }
-      log.info("About to start $kClass with args: ${listOf(parameters)}")
-
-      // get the FlowStarterAdapter instance which wraps this user's RPC connection
-      val flowStarter: FlowStarterAdapter = getFlowStarter(user)
-
-      val flowProgress = flowStarter.startTrackedFlowDynamic(
-        kClass.java as Class<FlowLogic<*>>,
-        *excludeProgressTracker.toTypedArray()
-      )
-      val notification =
-        ProgressNotification().withInvocationId(invocationId).withFlowClass(kClass.java)
-      flowProgress.progress.subscribe(
-        { step -> eventBus.publish(TOPIC, Json.encode(notification.withStep(step))) },
-        { error -> eventBus.publish(TOPIC, Json.encode(notification.withError(error))) },
-        { eventBus.publish(TOPIC, Json.encode(notification.withComplete(true))) }
-      )
 
-      @Suppress("UNCHECKED_CAST")
-      flowProgress.returnValue.toObservable().toFuture()
+      // a repeated invocation-id attaches to the flow that it started before, and new flows
+      // wait their turn to start
+      starts.start(user, invocationId, kClass.java.name) {
+        admission.admit(user, priority) { start(kClass, user, invocationId, excludeProgressTracker) }
+      }
     }
 
     // RPCCallable is a KCallable instance (which can act as a path handler)
     return RPCCallable(kClass, fn)
   }
 
+  @Suppress("UNCHECKED_CAST")
+  private fun start(
+    kClass: KClass<*>,
+    user: User?,
+    invocationId: String?,
+    parameters: List<Any?>
+  ): Future<Any?> {
+    log.info("About to start $kClass with args: $parameters")
+
+    // get the FlowStarterAdapter instance which wraps this user's RPC connection
+    val flowStarter: FlowStarterAdapter = getFlowStarter(user)
+
+    val flowProgress = flowStarter.startTrackedFlowDynamic(
+      kClass.java as Class<FlowLogic<*>>,
+      *parameters.toTypedArray()
+    )
+    val notification =
+      ProgressNotification().withInvocationId(invocationId).withFlowClass(kClass.java)
+    flowProgress.progress.subscribe(
+      { step -> progress.publish(user, notification.withStep(step)) },
+      { error -> progress.publish(user, notification.withError(error)) },
+      { progress.publish(user, notification.withComplete(true)) }
+    )
+
+    return flowProgress.returnValue.toObservable().toFuture()
+  }
+
   private fun possibleUserParameter() =
     if (!isAuth) emptyList() else listOf(
       KParameterSynthetic(
@@ -110,8 +144,4 @@ class FlowInitiator(
         listOf(Context::class.createAnnotationProxy())
       )
     )
-
-  private fun createBoundParameterTypes(): Map<Class<*>, Any> {
-    return mapOf<Class<*>, Any>(ProgressTracker::class.java to ProgressTracker())
-  }
 }
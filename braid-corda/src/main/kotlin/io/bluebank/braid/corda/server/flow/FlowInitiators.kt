@@ -0,0 +1,69 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.corda.server.progress.ProgressTopics
+import io.vertx.core.Future
+import io.vertx.core.json.Json
+import io.vertx.ext.auth.User
+import java.util.concurrent.ConcurrentHashMap
+import javax.ws.rs.HeaderParam
+import javax.ws.rs.core.Context
+import kotlin.reflect.KCallable
+import kotlin.reflect.KClass
+import kotlin.reflect.full.findAnnotation
+
+/**
+ * The initiators registered for the flows' own endpoints, keyed by flow class name, so that
+ * flows can also be started other than by a request to their endpoint. The clients of flows
+ * started this way only learn of them once they have started, so the history of their
+ * [progress] is kept.
+ */
+class FlowInitiators(private val progress: ProgressTopics? = null) {
+  private val initiators = ConcurrentHashMap<String, KCallable<Future<Any?>>>()
+
+  fun add(flows: Map<String, KCallable<Future<Any?>>>) {
+    initiators.putAll(flows)
+  }
+
+  operator fun contains(flow: String) = initiators.containsKey(flow)
+
+  /**
+   * starts the [flow] as its endpoint would, with the [payload] as its request body and
+   * [invocationId] and [priority] as its invocation-id and flow-priority headers; this blocks
+   * while the flow is started
+   */
+  fun start(
+    flow: String,
+    payload: Map<String, Any?>,
+    invocationId: String?,
+    user: User?,
+    priority: String? = null
+  ): Future<Any?> {
+    val initiator = initiators[flow]
+      ?: return Future.failedFuture("flow $flow is not registered")
+    if (invocationId != null) progress?.keepHistory(user, invocationId)
+    val args = initiator.parameters.map { parameter ->
+      when {
+        parameter.findAnnotation<HeaderParam>()?.value == "invocation-id" -> invocationId
+        parameter.findAnnotation<HeaderParam>()?.value == FlowPriority.HEADER -> priority
+        parameter.findAnnotation<Context>() != null -> user
+        else -> Json.mapper.convertValue(payload, (parameter.type.classifier as KClass<*>).java)
+      }
+    }
+    return initiator.call(*args.toTypedArray())
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.core.logging.loggerFor
+import java.io.File
+
+/**
+ * Keeps the encoded final status of each completed flow job for [ttlMillis], for its owner
+ * to fetch. While the statuses in memory take more than [maxBytes], estimated from their
+ * encoded length, the oldest are moved to files in [spillDir], or dropped if there is none.
+ *
+ * The methods may block on the disk.
+ */
+class FlowJobStore(
+  private val ttlMillis: Long = DEFAULT_TTL_MILLIS,
+  private val maxBytes: Long = DEFAULT_MAX_BYTES,
+  private val spillDir: File? = null,
+  private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+
+  companion object {
+    private val log = loggerFor<FlowJobStore>()
+    const val DEFAULT_TTL_MILLIS = 10 * 60 * 1000L
+    const val DEFAULT_MAX_BYTES = 64L * 1024 * 1024
+    private const val SUFFIX = ".job.json"
+  }
+
+  private class Stored(val owner: String?, val time: Long, var json: String?) {
+    val bytes = 2L * (json?.length ?: 0)
+    var file: File? = null
+  }
+
+  // in the order the jobs completed, so the oldest come first
+  private val jobs = LinkedHashMap<String, Stored>()
+  private var bytes = 0L
+
+  init {
+    // the jobs of a previous run are not kept
+    spillDir?.apply { mkdirs() }
+      ?.listFiles { _, name -> name.endsWith(SUFFIX) }
+      ?.forEach { it.delete() }
+  }
+
+  @Synchronized
+  fun put(id: String, owner: String?, json: String) {
+    evict()
+    val stored = Stored(owner, clock(), json)
+    jobs.remove(id)?.let { discard(it) }
+    jobs[id] = stored
+    bytes += stored.bytes
+    spill()
+  }
+
+  /**
+   * @return the status of the job, if it is stored and belongs to the [owner]
+   */
+  @Synchronized
+  fun get(id: String, owner: String?): String? {
+    evict()
+    val stored = jobs[id] ?: return null
+    if (stored.owner != owner) return null
+    return stored.json ?: stored.file?.readText()
+  }
+
+  @Synchronized
+  fun inMemory() = jobs.values.count { it.json != null }
+
+  @Synchronized
+  fun size() = jobs.size
+
+  private fun spill() {
+    val iterator = jobs.entries.iterator()
+    while (bytes > maxBytes && iterator.hasNext()) {
+      val (id, stored) = iterator.next()
+      val json = stored.json ?: continue
+      bytes -= stored.bytes
+      stored.json = null
+      when (spillDir) {
+        null -> iterator.remove()
+        else -> try {
+          stored.file = File(spillDir, id + SUFFIX).apply { writeText(json) }
+        } catch (e: Exception) {
+          log.warn("failed to spill flow job $id to disk, dropping it", e)
+          iterator.remove()
+        }
+      }
+    }
+  }
+
+  private fun evict() {
+    val expiry = clock() - ttlMillis
+    val iterator = jobs.values.iterator()
+    while (iterator.hasNext()) {
+      val stored = iterator.next()
+      if (stored.time > expiry) break
+      iterator.remove()
+      discard(stored)
+    }
+  }
+
+  private fun discard(stored: Stored) {
+    if (stored.json != null) bytes -= stored.bytes
+    stored.file?.delete()
+  }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.corda.server.progress.ProgressTopics
+import io.bluebank.braid.core.annotation.NonBlocking
+import io.bluebank.braid.core.http.end
+import io.bluebank.braid.core.logging.loggerFor
+import io.netty.handler.codec.http.HttpResponseStatus.ACCEPTED
+import io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND
+import io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE
+import io.swagger.v3.oas.annotations.Operation
+import io.swagger.v3.oas.annotations.media.Content
+import io.swagger.v3.oas.annotations.media.Schema
+import io.swagger.v3.oas.annotations.responses.ApiResponse
+import io.vertx.core.AsyncResult
+import io.vertx.core.Future
+import io.vertx.core.http.HttpHeaders
+import io.vertx.core.http.HttpServerResponse
+import io.vertx.core.json.Json
+import io.vertx.core.json.JsonObject
+import io.vertx.ext.auth.User
+import io.vertx.ext.web.RoutingContext
+import java.lang.reflect.InvocationTargetException
+import java.time.Instant
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import javax.ws.rs.core.MediaType
+
+data class FlowJobStatus(
+  @Schema(description = "The job id")
+  val id: String,
+  @Schema(description = "The flow class name", example = "net.corda.finance.flows.CashIssueFlow")
+  val flow: String,
+  @Schema(description = "The invocation-id of the flow's progress notifications, the job id unless one was given")
+  val invocationId: String,
+  val status: Status,
+  @Schema(description = "The latest progress step of the flow", example = "Starting")
+  val step: String? = null,
+  @Schema(description = "The flow's return value, once it has succeeded")
+  val result: Any? = null,
+  @Schema(description = "Why the flow failed")
+  val error: String? = null,
+  val created: Instant = Instant.now(),
+  val completed: Instant? = null
+) {
+  enum class Status {
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+}
+
+/**
+ * Runs flows as jobs for requests to a flow's endpoint that include `Prefer: respond-async`.
+ * Such requests are answered with `202 Accepted` and the job's location at once, and the job's
+ * status, latest progress step and result can then be fetched from [job]. Running jobs are
+ * kept in memory, and completed ones in the [store]. Once [maxRunning] jobs are running,
+ * further requests are refused with `503 Service Unavailable`.
+ */
+class FlowJobs(
+  private val initiators: FlowInitiators,
+  private val progress: ProgressTopics,
+  private val store: FlowJobStore,
+  private val userName: (User) -> String? = { null },
+  private val maxRunning: Int = DEFAULT_MAX_RUNNING
+) {
+
+  companion object {
+    private val log = loggerFor<FlowJobs>()
+    const val RESPOND_ASYNC = "respond-async"
+    const val DEFAULT_MAX_RUNNING = FlowAdmission.DEFAULT_MAX_CONCURRENT + FlowAdmission.DEFAULT_MAX_QUEUED
+  }
+
+  private class RunningJob(val owner: String?, @Volatile var status: FlowJobStatus)
+
+  private val running = ConcurrentHashMap<String, RunningJob>()
+
+  /**
+   * starts requests for the flow named by the [flowParam] path parameter as jobs, if they
+   * prefer to be answered asynchronously, and passes the rest to the next handler
+   */
+  fun handler(flowParam: String): (RoutingContext) -> Unit = { context ->
+    val prefer = context.request().getHeader("Prefer") ?: ""
+    val flow = context.pathParam(flowParam)
+    when {
+      !prefer.contains(RESPOND_ASYNC) || flow == null || flow !in initiators -> context.next()
+      else -> submit(context, flow)
+    }
+  }
+
+  @Operation(
+    description = "Retrieves the status, latest progress step and result of a flow started with " +
+      "the header `Prefer: respond-async`",
+    responses = [ApiResponse(
+      content = [Content(
+        mediaType = MediaType.APPLICATION_JSON,
+        schema = Schema(implementation = FlowJobStatus::class)
+      )]
+    )]
+  )
+  @NonBlocking
+  fun job(context: RoutingContext) {
+    val id = context.pathParam("id")
+    val owner = context.user()?.let(userName)
+    val job = running[id]
+    if (job != null && job.owner == owner) {
+      context.response().endJson(Json.encode(job.status))
+      return
+    }
+    context.vertx().executeBlocking<String?>({ it.complete(store.get(id, owner)) }, false) {
+      when {
+        it.failed() -> context.response().end(it.cause())
+        it.result() == null -> context.response().end(RuntimeException("no job $id"), NOT_FOUND.code())
+        else -> context.response().endJson(it.result())
+      }
+    }
+  }
+
+  private fun submit(context: RoutingContext, flow: String) {
+    val payload = try {
+      JsonObject(context.bodyAsString.takeUnless { it.isNullOrBlank() } ?: "{}").map
+    } catch (e: Exception) {
+      context.response().end(e, 400)
+      return
+    }
+    if (running.size >= maxRunning) {
+      context.response().end(RuntimeException("too many flow jobs are running"), SERVICE_UNAVAILABLE.code())
+      return
+    }
+    val user = context.user()
+    val id = UUID.randomUUID().toString()
+    val invocationId = context.request().getHeader("invocation-id") ?: id
+    val priority = context.request().getHeader(FlowPriority.HEADER)
+    val job = RunningJob(
+      user?.let(userName),
+      FlowJobStatus(id, flow, invocationId, FlowJobStatus.Status.RUNNING)
+    )
+    running[id] = job
+
+    val vertx = context.vertx()
+    val vertxContext = vertx.orCreateContext
+    val steps = progress.subscribe(user, invocationId) {
+      val step = JsonObject(it).getString("step")
+      if (step != null) job.status = job.status.copy(step = step)
+    }
+    vertx.executeBlocking<Future<Any?>>({
+      it.complete(initiators.start(flow, payload, invocationId, user, priority))
+    }, false) { started ->
+      val finished = when {
+        started.succeeded() -> started.result()
+        else -> Future.failedFuture(started.cause())
+      }
+      finished.setHandler { result ->
+        vertxContext.runOnContext {
+          progress.unsubscribe(steps)
+          complete(context, job, result)
+        }
+      }
+    }
+
+    val location = context.request().path().substringBefore("/cordapps/") + "/jobs/$id"
+    context.response()
+      .setStatusCode(ACCEPTED.code())
+      .putHeader(HttpHeaders.LOCATION, location)
+      .endJson(Json.encode(job.status))
+  }
+
+  private fun complete(context: RoutingContext, job: RunningJob, result: AsyncResult<Any?>) {
+    val status = job.status.copy(completed = Instant.now())
+    job.status = when {
+      result.succeeded() -> status.copy(status = FlowJobStatus.Status.SUCCEEDED, result = result.result())
+      else -> {
+        val cause = (result.cause() as? InvocationTargetException)?.targetException ?: result.cause()
+        log.warn("flow job ${status.id} for ${status.flow} failed", cause)
+        status.copy(status = FlowJobStatus.Status.FAILED, error = cause.message ?: cause.toString())
+      }
+    }
+    context.vertx().executeBlocking<Void>({
+      val json = try {
+        Json.encode(job.status)
+      } catch (e: Exception) {
+        log.warn("failed to encode the result of flow job ${status.id}", e)
+        Json.encode(status.copy(status = FlowJobStatus.Status.FAILED, error = "failed to encode result: ${e.message}"))
+      }
+      store.put(status.id, job.owner, json)
+      it.complete()
+    }, false) {
+      running.remove(status.id)
+    }
+  }
+
+  private fun HttpServerResponse.endJson(json: String) {
+    putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON).end(json)
+  }
+}
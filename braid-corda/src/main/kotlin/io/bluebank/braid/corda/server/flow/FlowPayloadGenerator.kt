@@ -0,0 +1,92 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.core.logging.loggerFor
+import io.bluebank.braid.core.synth.ClassFromParametersBuilder
+import io.bluebank.braid.core.synth.SyntheticConstructorAndTransformer.Companion.payloadParameters
+import io.bluebank.braid.core.synth.payloadClassName
+import io.bluebank.braid.core.synth.preferredConstructor
+import io.github.classgraph.ClassGraph
+import net.corda.core.flows.StartableByRPC
+import java.io.File
+
+/**
+ * Generates, at build time, the payload class of each flow that [FlowInitiator] would
+ * otherwise generate with ASM when braid starts. The classes are written as `.class` files
+ * to be packaged into the cordapp jar, next to the flows, where braid picks them up instead
+ * of generating them, as long as they still match their flow's constructor.
+ */
+class FlowPayloadGenerator(private val classLoader: ClassLoader) {
+
+  companion object {
+    private val log = loggerFor<FlowPayloadGenerator>()
+  }
+
+  /**
+   * @param roots the classes directories or jars of the cordapp, whose flows are loaded
+   * with the class loader of this generator
+   * @param outputDir the directory to write the payload classes to
+   * @return the names of the payload classes written
+   */
+  fun generate(roots: List<File>, outputDir: File): List<String> {
+    val flowClassNames = ClassGraph()
+      .overrideClasspath(roots.joinToString(File.pathSeparator) { it.path })
+      .enableClassInfo()
+      .enableAnnotationInfo()
+      .enableExternalClasses()
+      .scan()
+      .use { it.getClassesWithAnnotation(StartableByRPC::class.java.name).names }
+    return flowClassNames.mapNotNull { flowClassName ->
+      try {
+        generate(classLoader.loadClass(flowClassName), outputDir)
+      } catch (e: Throwable) {
+        log.warn("unable to generate payload for flow:$flowClassName", e)
+        null
+      }
+    }.also {
+      log.info("generated ${it.size} of ${flowClassNames.size} flow payloads in $outputDir")
+    }
+  }
+
+  private fun generate(flowClass: Class<*>, outputDir: File): String {
+    val className = flowClass.payloadClassName()
+    val parameters = payloadParameters(
+      flowClass.preferredConstructor(),
+      FlowInitiator.boundParameterTypes
+    )
+    val bytes = ClassFromParametersBuilder(parameters, className).build()
+    File(outputDir, className.replace('.', '/') + ".class").apply {
+      parentFile.mkdirs()
+      writeBytes(bytes)
+    }
+    return className
+  }
+}
+
+/**
+ * Generates the flow payloads of the classes directories or jars that follow the output
+ * directory in [args], loading them from the classpath of this process. This is the entry
+ * point for builds without the braid gradle plugin, e.g. for maven with the `java` goal of
+ * the `exec-maven-plugin` in the `process-classes` phase.
+ */
+fun main(args: Array<String>) {
+  require(args.size >= 2) {
+    "usage: FlowPayloadGeneratorKt <output directory> <classes directory or jar>..."
+  }
+  FlowPayloadGenerator(Thread.currentThread().contextClassLoader)
+    .generate(args.drop(1).map { File(it) }, File(args[0]))
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.netty.handler.codec.http.HttpResponseStatus.CONFLICT
+import io.vertx.core.Future
+import io.vertx.ext.auth.User
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Makes flow starts idempotent per user and invocation-id: a start with the same
+ * invocation-id as an earlier one by the same user attaches to the earlier flow while it
+ * runs, and gets its result for [windowMillis] after it succeeds, rather than starting
+ * another flow. Failed flows are forgotten, so that they can be retried. A [windowMillis]
+ * of 0 turns this off.
+ */
+class IdempotentFlowStarts(
+  private val windowMillis: Long = DEFAULT_WINDOW_MILLIS,
+  private val userName: (User) -> String? = { null },
+  private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+
+  companion object {
+    const val DEFAULT_WINDOW_MILLIS = 10 * 60 * 1000L
+  }
+
+  private data class Key(val user: String?, val invocationId: String)
+
+  private class Start(val flow: String) {
+    val result = CompletableFuture<Any?>()
+    @Volatile
+    var completedAt = Long.MAX_VALUE
+  }
+
+  private val starts = ConcurrentHashMap<Key, Start>()
+  @Volatile
+  private var lastSweep = 0L
+
+  fun start(user: User?, invocationId: String?, flow: String, fn: () -> Future<Any?>): Future<Any?> {
+    if (invocationId == null || windowMillis <= 0) return fn()
+    val now = clock()
+    sweep(now)
+    val key = Key(user?.let(userName), invocationId)
+    val start = Start(flow)
+    val existing = starts.putIfAbsent(key, start)?.takeUnless {
+      // an expired start that has not been swept yet is replaced
+      now - it.completedAt > windowMillis && starts.replace(key, it, start)
+    }
+    return when {
+      existing == null -> {
+        try {
+          fn().setHandler {
+            when {
+              it.succeeded() -> {
+                start.completedAt = clock()
+                start.result.complete(it.result())
+              }
+              else -> {
+                starts.remove(key, start)
+                start.result.completeExceptionally(it.cause())
+              }
+            }
+          }
+        } catch (e: Throwable) {
+          starts.remove(key, start)
+          start.result.completeExceptionally(e)
+        }
+        attach(start)
+      }
+      existing.flow != flow -> Future.failedFuture(
+        HttpStatusException(
+          CONFLICT.code(),
+          "invocation-id $invocationId was already used to start ${existing.flow}"
+        )
+      )
+      else -> attach(existing)
+    }
+  }
+
+  private fun attach(start: Start): Future<Any?> {
+    val future = Future.future<Any?>()
+    start.result.whenComplete { result, error ->
+      when (error) {
+        null -> future.complete(result)
+        else -> future.fail(error)
+      }
+    }
+    return future
+  }
+
+  private fun sweep(now: Long) {
+    if (now - lastSweep < windowMillis / 4) return
+    lastSweep = now
+    starts.values.removeIf { now - it.completedAt > windowMillis }
+  }
+}
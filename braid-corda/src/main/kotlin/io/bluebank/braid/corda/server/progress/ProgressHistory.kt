@@ -0,0 +1,94 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.progress
+
+import java.util.*
+
+/**
+ * A bounded record of the encoded progress notifications recently published to each address,
+ * so that a client that subscribes to an invocation after starting it can catch up.
+ *
+ * Each address keeps at most [maxEntries] notifications. Notifications older than
+ * [maxAgeMillis] are evicted, as are the oldest notifications of any address while all of them
+ * together take more than [maxBytes], estimated from their encoded length.
+ */
+class ProgressHistory(
+  val maxAgeMillis: Long = DEFAULT_MAX_AGE_MILLIS,
+  private val maxBytes: Long = DEFAULT_MAX_BYTES,
+  private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+  private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+
+  companion object {
+    const val DEFAULT_MAX_AGE_MILLIS = 60_000L
+    const val DEFAULT_MAX_BYTES = 8L * 1024 * 1024
+    const val DEFAULT_MAX_ENTRIES = 256
+  }
+
+  private class Entry(val address: String, var json: String, val time: Long) {
+    val bytes = 2L * json.length
+    // dropped from its address to make room, and left for eviction to skip
+    var dropped = false
+  }
+
+  private val entries = ArrayDeque<Entry>()
+  private val byAddress = HashMap<String, ArrayDeque<Entry>>()
+  private var bytes = 0L
+
+  val isEnabled: Boolean
+    get() = maxAgeMillis > 0 && maxBytes > 0 && maxEntries > 0
+
+  @Synchronized
+  fun record(address: String, json: String) {
+    if (!isEnabled) return
+    val entry = Entry(address, json, clock())
+    entries.addLast(entry)
+    bytes += entry.bytes
+    val forAddress = byAddress.getOrPut(address) { ArrayDeque() }
+    forAddress.addLast(entry)
+    if (forAddress.size > maxEntries) {
+      val dropped = forAddress.removeFirst()
+      dropped.dropped = true
+      dropped.json = ""
+      bytes -= dropped.bytes
+    }
+    evict()
+  }
+
+  @Synchronized
+  fun replay(address: String): List<String> {
+    evict()
+    return byAddress[address]?.map { it.json } ?: emptyList()
+  }
+
+  @Synchronized
+  fun size() = byAddress.values.sumBy { it.size }
+
+  private fun evict() {
+    val expiry = clock() - maxAgeMillis
+    while (entries.isNotEmpty() && (entries.first.time <= expiry || bytes > maxBytes)) {
+      val evicted = entries.removeFirst()
+      if (evicted.dropped) continue
+      bytes -= evicted.bytes
+      // entries are recorded in order, so the evicted entry is also its address's oldest
+      val forAddress = byAddress[evicted.address] ?: continue
+      forAddress.removeFirst()
+      if (forAddress.isEmpty()) {
+        byAddress.remove(evicted.address)
+      }
+    }
+  }
+}
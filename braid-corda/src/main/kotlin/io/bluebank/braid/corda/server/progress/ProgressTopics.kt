@@ -0,0 +1,130 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.progress
+
+import io.vertx.core.eventbus.EventBus
+import io.vertx.core.eventbus.MessageConsumer
+import io.vertx.core.json.Json
+import io.vertx.ext.auth.User
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Publishes each [ProgressNotification] to the address of its invocation id and to the
+ * address of all invocations, both scoped by user when [userName] names one. Subscribers are
+ * counted per address, so a notification is encoded once, and only if anyone listens or
+ * the [history] of its invocation records it.
+ *
+ * The history is only recorded for the invocations passed to [keepHistory], such as those of
+ * jobs and batches whose clients can only subscribe once the flow has started. Other clients
+ * choose their invocation id and can subscribe before starting the flow, and their
+ * notifications are not encoded at all while nobody listens.
+ */
+class ProgressTopics(
+  private val eventBus: EventBus,
+  private val userName: (User) -> String? = { null },
+  private val history: ProgressHistory = ProgressHistory(),
+  private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+
+  companion object {
+    const val TOPIC = "braid-progress-tracker-message-topic-id"
+
+    fun address(userName: String?, invocationId: String?): String =
+      listOfNotNull(
+        TOPIC,
+        userName?.let { "user/$it" },
+        invocationId?.let { "invocation/$it" }
+      ).joinToString("/")
+  }
+
+  private val listeners = ConcurrentHashMap<String, Int>()
+  // the addresses whose history is kept, until the clock() at which they expire
+  private val kept = ConcurrentHashMap<String, Long>()
+  @Volatile
+  private var lastSweep = 0L
+
+  /**
+   * records the history of the [user]'s invocation [invocationId] from now on, for as long as
+   * its notifications keep arriving within the age of the history
+   */
+  fun keepHistory(user: User?, invocationId: String) {
+    if (!history.isEnabled) return
+    val now = clock()
+    kept[address(user?.let(userName), invocationId)] = now + history.maxAgeMillis
+    if (now - lastSweep >= history.maxAgeMillis) {
+      lastSweep = now
+      kept.values.removeIf { it <= now }
+    }
+  }
+
+  private fun isKept(address: String): Boolean {
+    val expiry = kept[address] ?: return false
+    val now = clock()
+    if (expiry <= now) return false
+    kept[address] = now + history.maxAgeMillis
+    return true
+  }
+
+  fun publish(user: User?, notification: ProgressNotification) {
+    val name = user?.let(userName)
+    val all = address(name, null)
+    val invocation = notification.invocationId?.let { address(name, it) }
+    val recorded = invocation != null && isKept(invocation)
+    val heard = listeners.containsKey(all) ||
+      (invocation != null && listeners.containsKey(invocation))
+    if (!recorded && !heard) return
+    val json = Json.encode(notification)
+    // recording and publishing together orders each notification either before or after a
+    // subscriber's history, so that it is neither missed nor heard twice
+    synchronized(this) {
+      if (recorded) history.record(invocation!!, json)
+      listOfNotNull(all, invocation)
+        .filter { listeners.containsKey(it) }
+        .forEach { eventBus.publish(it, json) }
+    }
+  }
+
+  /**
+   * subscribes to the notifications of the [user]'s invocation [invocationId], starting with
+   * those recorded in its history, or to all the user's notifications if no id is given;
+   * [unsubscribe] the consumer when done with it.
+   *
+   * The history is passed to the [handler] before this returns, and the notifications that
+   * follow it are delivered on the calling context, so call this on an event loop for them
+   * to arrive in order.
+   */
+  fun subscribe(
+    user: User?,
+    invocationId: String?,
+    handler: (String) -> Unit
+  ): MessageConsumer<String> {
+    val address = address(user?.let(userName), invocationId)
+    val (consumer, replay) = synchronized(this) {
+      listeners.compute(address) { _, count -> (count ?: 0) + 1 }
+      val replay = if (invocationId != null) history.replay(address) else emptyList()
+      eventBus.consumer<String>(address) { handler(it.body()) } to replay
+    }
+    replay.forEach(handler)
+    return consumer
+  }
+
+  fun unsubscribe(consumer: MessageConsumer<String>) {
+    consumer.unregister()
+    listeners.computeIfPresent(consumer.address()) { _, count ->
+      if (count > 1) count - 1 else null
+    }
+  }
+}
@@ -15,7 +15,7 @@
  */
 package io.bluebank.braid.corda.server.progress
 
-import io.bluebank.braid.corda.server.flow.FlowInitiator
+import io.bluebank.braid.core.annotation.NonBlocking
 import io.bluebank.braid.core.logging.loggerFor
 import io.swagger.v3.oas.annotations.Operation
 import io.swagger.v3.oas.annotations.Parameter
@@ -25,12 +25,15 @@ import io.swagger.v3.oas.annotations.media.ExampleObject
 import io.swagger.v3.oas.annotations.media.Schema
 import io.swagger.v3.oas.annotations.responses.ApiResponse
 import io.vertx.core.eventbus.EventBus
+import io.vertx.core.eventbus.MessageConsumer
 import io.vertx.core.http.HttpHeaders
 import io.vertx.core.json.Json
 import io.vertx.ext.web.RoutingContext
 import javax.ws.rs.core.MediaType
 
-class TrackerHandler(private val eventBus: EventBus) {
+class TrackerHandler(private val progress: ProgressTopics) {
+
+  constructor(eventBus: EventBus) : this(ProgressTopics(eventBus))
 
   companion object {
     var log = loggerFor<TrackerHandler>()
@@ -38,7 +41,15 @@ class TrackerHandler(private val eventBus: EventBus) {
 
   @Operation(
     description = "Connect to the Progress Tracker. " +
-      "This call will return chunked responses of all progress trackers",
+      "This call will return chunked responses of the caller's progress trackers, " +
+      "or of just one flow invocation if its invocation-id is given, " +
+      "starting with its recent progress",
+    parameters = [Parameter(
+      name = "invocation-id",
+      `in` = ParameterIn.QUERY,
+      description = "the invocation-id header of the flow initiation post request",
+      required = false
+    )],
     responses = [ApiResponse(
       
       content = arrayOf(
@@ -51,6 +62,7 @@ class TrackerHandler(private val eventBus: EventBus) {
                 )))
     ]
   )
+  @NonBlocking
   fun handle(ctx: RoutingContext) {
     ctx.response()
       .setChunked(true)
@@ -59,14 +71,23 @@ class TrackerHandler(private val eventBus: EventBus) {
       .putHeader("Pragma", "no-cache")
       .putHeader(HttpHeaders.EXPIRES, "0")
 
-    val flowProgress = eventBus.consumer<String>(FlowInitiator.TOPIC){
-      log.trace(it.body())
-      ctx.response().write(it.body())
+    val response = ctx.response()
+    val invocationId = ctx.request().getParam("invocation-id")
+    // null while the bounded history of the invocation is written
+    var flowProgress: MessageConsumer<String>? = null
+    flowProgress = progress.subscribe(ctx.user(), invocationId) {
+      log.trace(it)
+      response.write(it)
+      val consumer = flowProgress
+      if (consumer != null && response.writeQueueFull()) {
+        // the event bus buffers the notifications until the client catches up
+        consumer.pause()
+        response.drainHandler { consumer.resume() }
+      }
     }
 
-    ctx.response().closeHandler{
-      flowProgress.unregister()
-      ctx.response().end();   // not sure if this is needed
+    response.closeHandler {
+      progress.unsubscribe(flowProgress!!)
     }
   }
 
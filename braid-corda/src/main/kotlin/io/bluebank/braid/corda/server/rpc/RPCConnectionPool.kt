@@ -0,0 +1,325 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.rpc
+
+import io.bluebank.braid.core.logging.loggerFor
+import io.swagger.v3.oas.annotations.media.Schema
+import io.vertx.core.Vertx
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import net.corda.client.rpc.RPCException
+import net.corda.core.messaging.CordaRPCOps
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.locks.ReentrantLock
+
+data class RPCConnectionMetrics(
+  @Schema(description = "index of the connection in the pool")
+  val index: Int,
+  @Schema(description = "whether the connection is established")
+  val connected: Boolean,
+  @Schema(description = "number of calls currently in flight on the connection")
+  val inFlight: Int,
+  @Schema(description = "number of calls completed on the connection")
+  val calls: Long,
+  @Schema(description = "mean latency of the completed calls in milliseconds")
+  val meanLatencyMillis: Double,
+  @Schema(description = "highest latency of the completed calls in milliseconds")
+  val maxLatencyMillis: Double,
+  @Schema(description = "number of consecutive failures to reach the node")
+  val failures: Int,
+  @Schema(description = "milliseconds until the connection is retried, while calls to it fail fast")
+  val retryInMillis: Long
+)
+
+/**
+ * A connection made by the `connect` function of a [RPCConnectionPool]
+ */
+class PooledRPCConnection(val ops: CordaRPCOps, val close: () -> Unit = {})
+
+/**
+ * The delay before reconnecting after a number of consecutive failures, doubling from
+ * [initialMillis] up to [maxMillis]
+ */
+data class RPCBackoff(val initialMillis: Long = 500, val maxMillis: Long = 30_000) {
+  fun delayMillis(failures: Int): Long {
+    val doublings = Math.min(failures - 1, 62).coerceAtLeast(0)
+    return Math.min(maxMillis, initialMillis shl doublings).let { if (it <= 0) maxMillis else it }
+  }
+}
+
+/**
+ * Whether a call failed because the node could not be reached, rather than because of the call
+ */
+fun isRPCConnectionFailure(error: Throwable): Boolean {
+  return generateSequence(error) { it.cause }.take(10).any {
+    it is RPCException || it.javaClass.name.startsWith("org.apache.activemq.artemis")
+  }
+}
+
+/**
+ * A fixed number of RPC connections to a node, all made with [connect], behind a single
+ * [CordaRPCOps]. Each call made through [ops] goes to the usable connection with the fewest
+ * calls in flight, and the calls in flight and latency of each connection are reported by
+ * [metrics]. Connections are made on first use, or ahead of it by [warmUp].
+ *
+ * A connection whose call fails to reach the node is closed and reconnected after a
+ * [backoff] that grows with each consecutive failure. Until then, calls that would use it
+ * fail fast with `503 Service Unavailable` rather than waiting on the node. [monitor] checks
+ * the connections in the background, so that a restarted node is reconnected to before
+ * the next call. Calls that find a connection being made for the first time wait for it.
+ */
+class RPCConnectionPool(
+  size: Int,
+  private val backoff: RPCBackoff = RPCBackoff(),
+  private val isConnectionFailure: (Throwable) -> Boolean = ::isRPCConnectionFailure,
+  private val clock: () -> Long = { System.currentTimeMillis() },
+  private val connect: () -> PooledRPCConnection
+) {
+
+  companion object {
+    private val log = loggerFor<RPCConnectionPool>()
+  }
+
+  init {
+    require(size > 0) { "the pool needs at least one connection but was given $size" }
+  }
+
+  private val members = (0 until size).map { Member(it) }
+  // where the search for the least busy connection starts, so that ties are spread evenly
+  private val next = AtomicInteger()
+
+  val ops: CordaRPCOps = Proxy.newProxyInstance(
+    CordaRPCOps::class.java.classLoader,
+    arrayOf(CordaRPCOps::class.java),
+    InvocationHandler { proxy, method, args -> invoke(proxy, method, args ?: arrayOf()) }
+  ) as CordaRPCOps
+
+  /**
+   * connects every connection of the pool, failing if any of them can't be made
+   */
+  fun connectAll() {
+    members.forEach { it.acquire() }
+  }
+
+  /**
+   * connects every connection of the pool on a worker thread, rather than on first use
+   */
+  fun warmUp(vertx: Vertx) {
+    members.forEach { member ->
+      vertx.executeBlocking<Unit>({ member.acquire(); it.complete() }, false) {
+        if (it.failed()) {
+          log.warn("failed to warm up RPC connection ${member.index}, it will connect on first use", it.cause())
+        }
+      }
+    }
+  }
+
+  /**
+   * runs [check] every [periodMillis]
+   * @return the id of the vertx timer doing so
+   */
+  fun monitor(vertx: Vertx, periodMillis: Long): Long {
+    return vertx.setPeriodic(periodMillis) { check(vertx) }
+  }
+
+  /**
+   * checks each established connection with a call to the node, and reconnects each broken
+   * connection that is due to be retried, on worker threads
+   */
+  fun check(vertx: Vertx) {
+    members.forEach { member ->
+      vertx.executeBlocking<Unit>({ member.check(); it.complete() }, false) {}
+    }
+  }
+
+  fun metrics(): List<RPCConnectionMetrics> = members.map { it.metrics() }
+
+  /**
+   * the number of calls waiting for a connection that another thread is making
+   */
+  internal val waitingToConnect: Int get() = members.sumBy { it.waitingToConnect }
+
+  private fun invoke(proxy: Any, method: Method, args: Array<out Any?>): Any? {
+    if (method.declaringClass == Any::class.java) {
+      return when (method.name) {
+        "equals" -> proxy === args[0]
+        "hashCode" -> System.identityHashCode(proxy)
+        else -> "RPCConnectionPool(${members.size})"
+      }
+    }
+    return leastInFlight().call(method, args)
+  }
+
+  private fun leastInFlight(): Member {
+    val start = Math.floorMod(next.getAndIncrement(), members.size)
+    val ordered = (0 until members.size).map { members[(start + it) % members.size] }
+    // prefer connections that won't fail fast; if there are none, the call fails fast
+    return ordered.filter { it.isUsable() }.minBy { it.inFlight.get() } ?: ordered.first()
+  }
+
+  private inner class Member(val index: Int) {
+    @Volatile
+    private var connection: PooledRPCConnection? = null
+    @Volatile
+    private var failures = 0
+    // clock() at which a broken connection may be retried
+    @Volatile
+    private var retryAt = 0L
+    private val connecting = ReentrantLock()
+    private val checking = AtomicBoolean()
+    val inFlight = AtomicInteger()
+    private val calls = LongAdder()
+    private val totalNanos = LongAdder()
+    private val maxNanos = AtomicLong()
+
+    val waitingToConnect: Int get() = connecting.queueLength
+
+    fun isUsable() = connection != null || retryInMillis() <= 0
+
+    fun call(method: Method, args: Array<out Any?>): Any? {
+      val connection = acquire()
+      inFlight.incrementAndGet()
+      val start = System.nanoTime()
+      try {
+        return method.invoke(connection.ops, *args)
+      } catch (e: InvocationTargetException) {
+        val error = e.targetException
+        if (isConnectionFailure(error)) failed(connection, error)
+        throw error
+      } finally {
+        inFlight.decrementAndGet()
+        record(System.nanoTime() - start)
+      }
+    }
+
+    /**
+     * @return the established connection, or a new one. The first connection is waited for
+     * if another thread is already making it. Once the node has been unreachable, this fails
+     * fast until retrying is due, and while another thread is reconnecting.
+     */
+    fun acquire(): PooledRPCConnection {
+      connection?.let { return it }
+      if (failures > 0) {
+        val retryIn = retryInMillis()
+        if (retryIn > 0 || !connecting.tryLock()) throw unavailable(retryIn)
+      } else {
+        connecting.lock()
+      }
+      try {
+        connection?.let { return it }
+        // the connection waited for may have failed to be made
+        val retryIn = retryInMillis()
+        if (retryIn > 0) throw unavailable(retryIn)
+        return connectNow()
+      } finally {
+        connecting.unlock()
+      }
+    }
+
+    private fun connectNow(): PooledRPCConnection {
+      try {
+        return connect().also {
+          connection = it
+          if (failures > 0) log.info("RPC connection $index reconnected after $failures failures")
+          failures = 0
+        }
+      } catch (e: Throwable) {
+        tripped(e)
+        throw e
+      }
+    }
+
+    fun check() {
+      if (!checking.compareAndSet(false, true)) return
+      try {
+        val connection = connection
+        when {
+          connection != null -> try {
+            connection.ops.currentNodeTime()
+          } catch (e: Throwable) {
+            if (isConnectionFailure(e)) failed(connection, e)
+          }
+          retryInMillis() <= 0 -> try {
+            acquire()
+          } catch (e: Throwable) {
+            // already recorded as a failure
+          }
+        }
+      } finally {
+        checking.set(false)
+      }
+    }
+
+    private fun failed(broken: PooledRPCConnection, error: Throwable) {
+      synchronized(this) {
+        if (connection !== broken) return // already replaced
+        connection = null
+        tripped(error)
+      }
+      try {
+        broken.close()
+      } catch (e: Throwable) {
+        log.debug("failed to close broken RPC connection $index", e)
+      }
+    }
+
+    private fun tripped(error: Throwable) {
+      val delay = synchronized(this) {
+        failures++
+        backoff.delayMillis(failures).also {
+          retryAt = clock() + it
+        }
+      }
+      log.warn("RPC connection $index failed ($failures consecutive failures), retrying in ${delay}ms: ${error.message}")
+    }
+
+    private fun retryInMillis() = if (failures == 0) 0L else retryAt - clock()
+
+    private fun unavailable(retryInMillis: Long) = HttpStatusException(
+      503,
+      "RPC connection to the node is unavailable, retrying in ${Math.max(retryInMillis, 0)}ms"
+    )
+
+    private fun record(nanos: Long) {
+      calls.increment()
+      totalNanos.add(nanos)
+      maxNanos.accumulateAndGet(nanos) { a, b -> Math.max(a, b) }
+    }
+
+    fun metrics(): RPCConnectionMetrics {
+      val calls = calls.sum()
+      return RPCConnectionMetrics(
+        index = index,
+        connected = connection != null,
+        inFlight = inFlight.get(),
+        calls = calls,
+        meanLatencyMillis = if (calls == 0L) 0.0 else totalNanos.sum().toMillis() / calls,
+        maxLatencyMillis = maxNanos.get().toMillis(),
+        failures = failures,
+        retryInMillis = Math.max(retryInMillis(), 0)
+      )
+    }
+
+    private fun Long.toMillis() = this.toDouble() / TimeUnit.MILLISECONDS.toNanos(1)
+  }
+}
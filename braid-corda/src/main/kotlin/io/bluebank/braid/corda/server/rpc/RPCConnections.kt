@@ -17,6 +17,7 @@ package io.bluebank.braid.corda.server.rpc
 
 import io.bluebank.braid.corda.rest.RestMounter
 import io.bluebank.braid.corda.server.BraidAuth
+import io.bluebank.braid.core.annotation.NonBlocking
 import io.bluebank.braid.core.logging.loggerFor
 import io.swagger.v3.oas.annotations.media.Schema
 import io.vertx.core.Future
@@ -29,8 +30,6 @@ import net.corda.core.utilities.NetworkHostAndPort
 import org.slf4j.Logger
 import java.util.concurrent.ConcurrentHashMap
 
-// todo manage recover and reconnection etc probably with Future class
-
 data class LoginRequest(
   @Schema(description = "user name", example = "sa")
   val user: String,
@@ -44,6 +43,18 @@ fun connect(
   nodeAddress: NetworkHostAndPort,
   log: Logger
 ): CordaRPCOps {
+  return connectPooled(userName, password, nodeAddress, log).ops
+}
+
+/**
+ * connects as [connect] does, keeping hold of how to close the connection once it is broken
+ */
+fun connectPooled(
+  userName: String,
+  password: String,
+  nodeAddress: NetworkHostAndPort,
+  log: Logger
+): PooledRPCConnection {
   log.info("Attempting to connect to Corda $nodeAddress as username $userName")
   try {
     val client =
@@ -53,7 +64,8 @@ fun connect(
       )
     val connection = client.start(userName, password)
     log.info("Connection established as username $userName")
-    return connection.proxy
+    // the node may be gone, so don't wait on it to acknowledge closing
+    return PooledRPCConnection(connection.proxy) { connection.forceClose() }
   } catch (err: Throwable) {
     log.info("Connection failed", err)
     throw err
@@ -61,28 +73,59 @@ fun connect(
 }
 
 interface RPCConnections {
+  companion object {
+    const val DEFAULT_MONITOR_PERIOD_MILLIS = 5_000L
+  }
+
   fun getConnection(user: User?): CordaRPCOps
   fun addLoginPath(restMounter: RestMounter)
+
+  /**
+   * starts connecting ahead of the first request, where the connections are known up front
+   */
+  fun warmUp(vertx: Vertx) {}
+
+  /**
+   * checks the connections periodically, reconnecting those that are broken
+   */
+  fun monitor(vertx: Vertx, periodMillis: Long = DEFAULT_MONITOR_PERIOD_MILLIS) {}
+
+  /**
+   * the calls in flight and latency of each pooled connection
+   */
+  @NonBlocking
+  fun metrics(): List<RPCConnectionMetrics> = emptyList()
 }
 
 // called when braid itself logs in with configured credentials, users are unauthenticated
 class RPCConnectionsShared(
   private val nodeAddress: NetworkHostAndPort,
   private val userName: String,
-  private val password: String
+  private val password: String,
+  poolSize: Int = 1
 ) : RPCConnections {
 
   private val log = loggerFor<RPCConnectionsShared>()
-  // a single, shared, just-in-time connection -- instead of the per-user
+  // a shared pool of just-in-time connections -- instead of the per-user
   // `connections = ConcurrentHashMap` which is implemented by RPCConnectionsAuth
-  private val connection: CordaRPCOps by lazy {
-    connect(userName, password, nodeAddress, log)
+  private val pool = RPCConnectionPool(poolSize) {
+    connectPooled(userName, password, nodeAddress, log)
   }
 
   override fun getConnection(user: User?): CordaRPCOps {
-    return connection
+    return pool.ops
+  }
+
+  override fun warmUp(vertx: Vertx) {
+    pool.warmUp(vertx)
+  }
+
+  override fun monitor(vertx: Vertx, periodMillis: Long) {
+    pool.monitor(vertx, periodMillis)
   }
 
+  override fun metrics() = pool.metrics()
+
   override fun addLoginPath(restMounter: RestMounter) {} // no login function
 }
 
@@ -93,7 +136,8 @@ class RPCConnectionsAuth(
   private val braidAuth: BraidAuth
 ) : RPCConnections {
 
-  private data class Connected(val connection: CordaRPCOps, val password: String)
+  // a pool of one, so that the user's connection is reconnected if it breaks
+  private data class Connected(val pool: RPCConnectionPool, val password: String)
 
   private val log = loggerFor<RPCConnectionsAuth>()
   private val connections = ConcurrentHashMap<String, Connected>()
@@ -124,8 +168,11 @@ class RPCConnectionsAuth(
       val found = connections.computeIfAbsent(userName) {
         // then attempt to make the network connection
         // this may take a while and throw an exception on failure or if password is wrong
-        val connection = connect(userName, password, nodeAddress, log)
-        Connected(connection, password)
+        val pool = RPCConnectionPool(1) {
+          connectPooled(userName, password, nodeAddress, log)
+        }
+        pool.connectAll()
+        Connected(pool, password)
       }
       log.info("login connection found")
       it.complete(found)
@@ -148,7 +195,13 @@ class RPCConnectionsAuth(
     val userName = braidAuth.getUserName(user)
     val connected = connections[userName]
       ?: error("expected connection for this username")
-    return connected.connection
+    return connected.pool.ops
+  }
+
+  override fun monitor(vertx: Vertx, periodMillis: Long) {
+    vertx.setPeriodic(periodMillis) {
+      connections.values.forEach { it.pool.check(vertx) }
+    }
   }
 
   private fun loginCheckPassword(
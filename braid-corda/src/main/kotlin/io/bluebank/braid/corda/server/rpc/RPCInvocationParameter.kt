@@ -15,6 +15,7 @@
  */
 package io.bluebank.braid.corda.server.rpc
 
+import io.bluebank.braid.corda.server.flow.FlowPriority
 import javax.ws.rs.HeaderParam
 import kotlin.reflect.KParameter
 import kotlin.reflect.full.declaredFunctions
@@ -25,9 +26,16 @@ class RPCInvocationParameter {
       val template = RPCInvocationParameter::class.declaredFunctions.iterator().next()
       return template.parameters.get(1)
     }
+
+    fun priority(): KParameter {
+      val template = RPCInvocationParameter::class.declaredFunctions.iterator().next()
+      return template.parameters.get(2)
+    }
   }
 
   fun template(@HeaderParam("invocation-id")
-               invocationId: String?) {
+               invocationId: String?,
+               @HeaderParam(FlowPriority.HEADER)
+               priority: String?) {
   }
 }
\ No newline at end of file
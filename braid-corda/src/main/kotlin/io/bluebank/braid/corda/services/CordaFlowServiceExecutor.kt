@@ -31,12 +31,16 @@ import net.corda.core.utilities.ProgressTracker
 import net.corda.node.services.api.StartedNodeServices
 import rx.Observable
 import java.lang.reflect.Constructor
+import java.util.concurrent.ConcurrentHashMap
 
 class CordaFlowServiceExecutor(
   private val services: FlowStarterAdapter,
   val config: BraidConfig
 ) : ServiceExecutor {
 
+  // the first constructor of each flow by its number of parameters
+  private val constructors = ConcurrentHashMap<Class<*>, Map<Int, Constructor<*>>>()
+
   override fun invoke(request: JsonRPCRequest): Observable<Any> {
     val flow = config.registeredFlows[request.method]
     return if (flow != null) {
@@ -66,7 +70,7 @@ class CordaFlowServiceExecutor(
     request: JsonRPCRequest,
     clazz: Class<out FlowLogic<*>>
   ): Observable<Any> {
-    val constructor = clazz.constructors.firstOrNull { it.matches(request) }
+    val constructor = constructorsOf(clazz)[request.paramCount()]
     return if (constructor == null) {
       Observable.error(MethodDoesNotExist(request.method))
     } else {
@@ -88,10 +92,12 @@ class CordaFlowServiceExecutor(
       }
     }
   }
-}
 
-private fun Constructor<*>.matches(request: JsonRPCRequest) =
-  this.parameterCount == request.paramCount()
+  private fun constructorsOf(clazz: Class<*>): Map<Int, Constructor<*>> =
+    constructors.getOrPut(clazz) {
+      clazz.constructors.groupBy { it.parameterCount }.mapValues { it.value.first() }
+    }
+}
 
 private fun <T> StartedNodeServices.startFlowDynamic(flow: FlowLogic<T>): CordaFuture<FlowStateMachine<T>> {
   val context =
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services
+
+import io.bluebank.braid.core.logging.loggerFor
+import net.corda.core.identity.AbstractParty
+import net.corda.core.identity.CordaX500Name
+import net.corda.core.identity.Party
+import net.corda.core.messaging.DataFeed
+import net.corda.core.node.NodeInfo
+import net.corda.core.node.services.NetworkMapCache
+import net.corda.core.utilities.NetworkHostAndPort
+import rx.Subscription
+import rx.subjects.PublishSubject
+import java.security.PublicKey
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A local copy of the network map, seeded from the [source]'s [track] feed on first use and
+ * kept current by its updates, so that reads are served from hash indexes rather than by
+ * the node. If the feed fails, e.g. because the RPC connection dropped, the replica is
+ * seeded again on the next read.
+ *
+ * The node's own info and the notaries are read once per seeding.
+ */
+class NetworkMapReplica(private val source: NetworkMapServiceAdapter) : NetworkMapServiceAdapter {
+
+  companion object {
+    private val log = loggerFor<NetworkMapReplica>()
+  }
+
+  private class Replica(
+    val self: NodeInfo,
+    val notaries: List<Party>
+  ) {
+    val nodes = ConcurrentHashMap<NodeInfo, NodeInfo>()
+    val byAddress = ConcurrentHashMap<NetworkHostAndPort, NodeInfo>()
+    val byName = ConcurrentHashMap<CordaX500Name, NodeInfo>()
+    val byKey = ConcurrentHashMap<PublicKey, NodeInfo>()
+    val notariesByName = notaries.associateBy { it.name }
+
+    fun add(node: NodeInfo) {
+      nodes[node] = node
+      node.addresses.forEach { byAddress[it] = node }
+      node.legalIdentities.forEach {
+        byName[it.name] = node
+        byKey[it.owningKey] = node
+      }
+    }
+
+    fun remove(node: NodeInfo) {
+      nodes.remove(node)
+      node.addresses.forEach { byAddress.remove(it, node) }
+      node.legalIdentities.forEach {
+        byName.remove(it.name, node)
+        byKey.remove(it.owningKey, node)
+      }
+    }
+
+    fun apply(change: NetworkMapCache.MapChange) {
+      when (change) {
+        is NetworkMapCache.MapChange.Added -> add(change.node)
+        is NetworkMapCache.MapChange.Removed -> remove(change.node)
+        is NetworkMapCache.MapChange.Modified -> {
+          remove(change.previousNode)
+          add(change.node)
+        }
+      }
+    }
+  }
+
+  private val changes = PublishSubject.create<NetworkMapCache.MapChange>()
+  @Volatile
+  private var replica: Replica? = null
+  private var subscription: Subscription? = null
+
+  private fun replica(): Replica = replica ?: seed()
+
+  @Synchronized
+  private fun seed(): Replica {
+    replica?.let { return it }
+    val feed = source.track()
+    val seeded = Replica(source.nodeInfo(), source.notaryIdentities())
+    feed.snapshot.forEach { seeded.add(it) }
+    subscription?.unsubscribe()
+    subscription = feed.updates.subscribe({
+      seeded.apply(it)
+      changes.onNext(it)
+    }, {
+      log.warn("network map feed failed, the replica will be seeded again on its next read", it)
+      dropReplica(seeded)
+    })
+    replica = seeded
+    log.info("seeded the network map replica with ${seeded.nodes.size} nodes")
+    return seeded
+  }
+
+  @Synchronized
+  private fun dropReplica(failed: Replica) {
+    if (replica === failed) {
+      replica = null
+    }
+  }
+
+  override fun networkMapSnapshot(): List<NodeInfo> = replica().nodes.keys.toList()
+
+  override fun wellKnownPartyFromX500Name(x500Name: CordaX500Name): Party? {
+    // parties known to the node's identity service need not be on the network map
+    return replica().byName[x500Name]?.legalIdentities?.firstOrNull { it.name == x500Name }
+      ?: source.wellKnownPartyFromX500Name(x500Name)
+  }
+
+  override fun nodeInfoFromParty(party: AbstractParty): NodeInfo? {
+    return replica().byKey[party.owningKey]
+      // an anonymous party can only be resolved by the node
+      ?: if (party is Party) null else source.nodeInfoFromParty(party)
+  }
+
+  override fun notaryIdentities(): List<Party> = replica().notaries
+
+  override fun nodeInfo(): NodeInfo = replica().self
+
+  override fun notaryPartyFromX500Name(x500Name: CordaX500Name): Party? =
+    replica().notariesByName[x500Name]
+
+  override fun track(): DataFeed<List<NodeInfo>, NetworkMapCache.MapChange> {
+    val snapshot = networkMapSnapshot()
+    return DataFeed(snapshot, changes)
+  }
+
+  override fun getNodeByAddress(hostAndPort: NetworkHostAndPort): NodeInfo? =
+    replica().byAddress[hostAndPort]
+
+  override fun getNodeByLegalName(name: CordaX500Name): NodeInfo? = replica().byName[name]
+}
@@ -28,7 +28,6 @@ import net.corda.core.node.services.NetworkMapCache
 import net.corda.core.utilities.NetworkHostAndPort
 import rx.Observable
 import rx.Subscription
-import java.util.stream.Collectors
 import javax.ws.rs.QueryParam
 import javax.ws.rs.core.Context
 
@@ -167,23 +166,14 @@ class RestNetworkMapService(
   ): List<SimpleNodeInfo> {
     val networkMapServiceAdapter = getNetworkMapServiceAdapter(user)
     return when {
-      hostAndPort?.isNotEmpty() ?: false -> {
-        val address = NetworkHostAndPort.parse(hostAndPort!!)
-        networkMapServiceAdapter.networkMapSnapshot().stream()
-          .filter { node -> node.addresses.contains(address) }
-          .map { node -> node.toSimpleNodeInfo() }
-          .collect(Collectors.toList())
-      }
-      x500Name?.isNotEmpty() ?: false -> {
-        val x500Name1 = CordaX500Name.parse(x500Name!!)
-        val party = networkMapServiceAdapter.wellKnownPartyFromX500Name(x500Name1)
-        listOfNotNull(party?.let {
-          networkMapServiceAdapter.nodeInfoFromParty(party)?.toSimpleNodeInfo()
-        })
-      }
-      else -> networkMapServiceAdapter.networkMapSnapshot().stream().map { node -> node.toSimpleNodeInfo() }.collect(
-        Collectors.toList()
+      hostAndPort?.isNotEmpty() ?: false -> listOfNotNull(
+        networkMapServiceAdapter.getNodeByAddress(hostAndPort!!)?.toSimpleNodeInfo()
+      )
+      x500Name?.isNotEmpty() ?: false -> listOfNotNull(
+        networkMapServiceAdapter.getNodeByLegalName(CordaX500Name.parse(x500Name!!))
+          ?.toSimpleNodeInfo()
       )
+      else -> networkMapServiceAdapter.networkMapSnapshot().map { it.toSimpleNodeInfo() }
     }
   }
 
@@ -31,10 +31,12 @@ import net.corda.core.node.AppServiceHub
 import net.corda.core.node.NodeInfo
 import net.corda.core.node.services.NetworkMapCache
 import net.corda.core.utilities.NetworkHostAndPort
+import java.lang.reflect.Constructor
 import java.lang.reflect.ParameterizedType
 import java.lang.reflect.Type
 import java.lang.reflect.TypeVariable
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.reflect.KFunction
 import kotlin.reflect.KParameter
 import kotlin.reflect.jvm.javaConstructor
@@ -44,6 +46,11 @@ fun AppServiceHub.toCordaServicesAdapter(): CordaServicesAdapter {
 }
 
 class AppServiceHubAdapter(private val serviceHub: AppServiceHub) : CordaServicesAdapter {
+  // whether the arguments bind to a constructor depends only on their runtime types
+  private data class ConstructorKey(val flowClass: Class<*>, val argTypes: List<Class<*>?>)
+
+  private val constructors = ConcurrentHashMap<ConstructorKey, Constructor<*>>()
+
   override fun getNodeByLegalName(name: CordaX500Name): NodeInfo? {
     return serviceHub.transaction {
       serviceHub.networkMapCache.getNodeByLegalName(name)
@@ -98,30 +105,41 @@ class AppServiceHubAdapter(private val serviceHub: AppServiceHub) : CordaService
     logicType: Class<out FlowLogic<T>>,
     vararg args: Any?
   ): FlowHandle<T> {
-    val argTypes = args.map { it?.javaClass }
-    val constructor: KFunction<FlowLogic<T>> =
-      uncheckedCast(findConstructor(logicType, argTypes))
-    val argsMap =
-      args.zip(constructor.parameters).map { Pair(it.second.name!!, it.first) }.toMap()
-    val params =
-      buildParams(constructor, argsMap) ?: error("could not find matching constructor")
-    val flowLogic = constructor.callBy(params)
-    return serviceHub.startFlow(flowLogic)
+    return serviceHub.startFlow(createFlowLogic(logicType, args))
   }
 
   override fun <T> startTrackedFlowDynamic(
     logicType: Class<out FlowLogic<T>>,
     vararg args: Any?
-    ): FlowProgressHandle<T> {
-      val argTypes = args.map { it?.javaClass }
-      val constructor: KFunction<FlowLogic<T>> =
-        uncheckedCast(findConstructor(logicType, argTypes))
-      val argsMap =
-        args.zip(constructor.parameters).map { Pair(it.second.name!!, it.first) }.toMap()
-      val params =
-        buildParams(constructor, argsMap) ?: error("could not find matching constructor")
-      val flowLogic = constructor.callBy(params)
-      return serviceHub.startTrackedFlow(flowLogic)
+  ): FlowProgressHandle<T> {
+    return serviceHub.startTrackedFlow(createFlowLogic(logicType, args))
+  }
+
+  private fun <T> createFlowLogic(
+    logicType: Class<out FlowLogic<T>>,
+    args: Array<out Any?>
+  ): FlowLogic<T> {
+    val argTypes = args.map { it?.javaClass }
+    val constructor = constructors.getOrPut(ConstructorKey(logicType, argTypes)) {
+      resolveConstructor(logicType, argTypes, args)
+    }
+    return uncheckedCast(constructor.newInstance(*args))
+  }
+
+  /**
+   * the Java constructor of the Kotlin constructor that the [args] bind to, which takes the
+   * same arguments in the same order, since every parameter is bound by position
+   */
+  private fun resolveConstructor(
+    logicType: Class<out FlowLogic<*>>,
+    argTypes: List<Class<Any>?>,
+    args: Array<out Any?>
+  ): Constructor<*> {
+    val constructor = findConstructor(logicType, argTypes)
+    val argsMap =
+      args.zip(constructor.parameters).map { Pair(it.second.name!!, it.first) }.toMap()
+    buildParams(constructor, argsMap) ?: error("could not find matching constructor")
+    return constructor.javaConstructor!!.apply { isAccessible = true }
   }
 
   private fun findConstructor(
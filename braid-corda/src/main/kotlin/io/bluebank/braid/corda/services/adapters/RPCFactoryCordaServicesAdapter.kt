@@ -16,6 +16,7 @@
 package io.bluebank.braid.corda.services.adapters
 
 import io.bluebank.braid.corda.services.CordaServicesAdapter
+import io.bluebank.braid.corda.services.NetworkMapServiceAdapter
 import net.corda.core.flows.FlowLogic
 import net.corda.core.identity.AbstractParty
 import net.corda.core.identity.CordaX500Name
@@ -27,8 +28,13 @@ import net.corda.core.node.NodeInfo
 import net.corda.core.node.services.NetworkMapCache
 import net.corda.core.utilities.NetworkHostAndPort
 
+/**
+ * Starts flows with the [delegate], and reads the network map from [networkMap], which
+ * may be a local replica of the delegate's
+ */
 class RPCFactoryCordaServicesAdapter(
-  private val delegate: CordaServicesAdapter
+  private val delegate: CordaServicesAdapter,
+  private val networkMap: NetworkMapServiceAdapter = delegate
 ) : CordaServicesAdapter {
 
   override fun <T> startFlowDynamic(
@@ -43,38 +49,38 @@ class RPCFactoryCordaServicesAdapter(
   }
 
   override fun networkMapSnapshot(): List<NodeInfo> {
-    return delegate.networkMapSnapshot()
+    return networkMap.networkMapSnapshot()
   }
 
   override fun wellKnownPartyFromX500Name(x500Name: CordaX500Name): Party? {
-    return delegate.wellKnownPartyFromX500Name(x500Name)
+    return networkMap.wellKnownPartyFromX500Name(x500Name)
   }
 
   override fun nodeInfoFromParty(party: AbstractParty): NodeInfo? {
-    return delegate.nodeInfoFromParty(party)
+    return networkMap.nodeInfoFromParty(party)
   }
 
   override fun notaryIdentities(): List<Party> {
-    return delegate.notaryIdentities()
+    return networkMap.notaryIdentities()
   }
 
   override fun nodeInfo(): NodeInfo {
-    return delegate.nodeInfo()
+    return networkMap.nodeInfo()
   }
 
   override fun notaryPartyFromX500Name(x500Name: CordaX500Name): Party? {
-    return delegate.notaryPartyFromX500Name(x500Name)
+    return networkMap.notaryPartyFromX500Name(x500Name)
   }
 
   override fun track(): DataFeed<List<NodeInfo>, NetworkMapCache.MapChange> {
-    return delegate.track()
+    return networkMap.track()
   }
 
   override fun getNodeByAddress(hostAndPort: NetworkHostAndPort): NodeInfo? {
-    return delegate.getNodeByAddress(hostAndPort)
+    return networkMap.getNodeByAddress(hostAndPort)
   }
 
   override fun getNodeByLegalName(name: CordaX500Name): NodeInfo? {
-    return delegate.getNodeByLegalName(name)
+    return networkMap.getNodeByLegalName(name)
   }
 }
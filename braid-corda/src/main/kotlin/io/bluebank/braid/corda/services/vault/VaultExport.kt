@@ -0,0 +1,161 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services.vault
+
+import io.bluebank.braid.core.http.end
+import io.bluebank.braid.core.logging.loggerFor
+import io.vertx.core.Future
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpHeaders
+import io.vertx.core.http.HttpServerResponse
+import io.vertx.core.json.Json
+import net.corda.core.contracts.ContractState
+import net.corda.core.contracts.StateAndRef
+import net.corda.core.messaging.CordaRPCOps
+import net.corda.core.node.services.Vault
+import net.corda.core.node.services.vault.DEFAULT_PAGE_NUM
+import net.corda.core.node.services.vault.PageSpecification
+
+enum class ExportFormat(val contentType: String) {
+  NDJSON("application/x-ndjson") {
+    override fun header(): String? = null
+    override fun line(state: StateAndRef<ContractState>, metadata: Vault.StateMetadata?) =
+      Json.encode(state) + "\n"
+  },
+  CSV("text/csv") {
+    override fun header() =
+      "txhash,index,contractStateClassName,status,recordedTime,consumedTime,notary,state\r\n"
+
+    override fun line(state: StateAndRef<ContractState>, metadata: Vault.StateMetadata?) =
+      listOf(
+        state.ref.txhash.toString(),
+        state.ref.index.toString(),
+        state.state.data.javaClass.name,
+        metadata?.status?.toString(),
+        metadata?.recordedTime?.toString(),
+        metadata?.consumedTime?.toString(),
+        state.state.notary.toString(),
+        Json.encode(state.state.data)
+      ).joinToString(",", postfix = "\r\n") { csvField(it ?: "") }
+  };
+
+  abstract fun header(): String?
+  abstract fun line(state: StateAndRef<ContractState>, metadata: Vault.StateMetadata?): String
+
+  companion object {
+    private val needsQuotes = Regex("[\",\r\n]")
+
+    fun csvField(value: String) = when {
+      needsQuotes.containsMatchIn(value) -> "\"" + value.replace("\"", "\"\"") + "\""
+      else -> value
+    }
+  }
+}
+
+/**
+ * Streams every state matching a [VaultQuery], page by page, to a chunked response. Only the
+ * page being written and the next page, which is fetched while the current one is written,
+ * are held in memory, and writing pauses whenever the response's write queue is full.
+ */
+internal class VaultExport(
+  private val vertx: Vertx,
+  private val ops: CordaRPCOps,
+  private val query: VaultQuery,
+  private val format: ExportFormat,
+  private val response: HttpServerResponse
+) {
+
+  companion object {
+    private val log = loggerFor<VaultExport>()
+  }
+
+  private val pageSize = query.paging.pageSize
+  @Volatile
+  private var closed = false
+
+  fun start() {
+    response.closeHandler { closed = true }
+    val firstPage = Math.max(query.paging.pageNumber, DEFAULT_PAGE_NUM)
+    fetch(firstPage).setHandler {
+      when {
+        closed -> Unit
+        it.failed() -> {
+          log.warn("failed to export vault", it.cause())
+          response.end(it.cause())
+        }
+        else -> {
+          response.setChunked(true)
+            .putHeader(HttpHeaders.CONTENT_TYPE, format.contentType)
+          format.header()?.let { header -> response.write(header) }
+          write(firstPage, it.result(), 0)
+        }
+      }
+    }
+  }
+
+  private fun fetch(pageNumber: Int): Future<Vault.Page<ContractState>> {
+    val result = Future.future<Vault.Page<ContractState>>()
+    vertx.executeBlocking<Vault.Page<ContractState>>({
+      it.complete(
+        ops.vaultQueryBy(
+          query.criteria,
+          PageSpecification(pageNumber, pageSize),
+          query.sorting,
+          query.contractStateType
+        )
+      )
+    }, true, result)
+    return result
+  }
+
+  private fun hasMore(pageNumber: Int, page: Vault.Page<ContractState>) =
+    page.states.size == pageSize && pageNumber.toLong() * pageSize < page.totalStatesAvailable
+
+  private fun write(
+    pageNumber: Int,
+    page: Vault.Page<ContractState>,
+    from: Int,
+    next: Future<Vault.Page<ContractState>>? = prefetch(pageNumber, page)
+  ) {
+    var index = from
+    while (index < page.states.size) {
+      if (closed) return
+      if (response.writeQueueFull()) {
+        response.drainHandler { write(pageNumber, page, index, next) }
+        return
+      }
+      response.write(format.line(page.states[index], page.statesMetadata.getOrNull(index)))
+      index++
+    }
+    when (next) {
+      null -> response.end()
+      else -> next.setHandler {
+        when {
+          closed -> Unit
+          it.failed() -> {
+            // the status has already been sent, so cut the stream short to signal failure
+            log.warn("failed to export vault page ${pageNumber + 1}", it.cause())
+            response.close()
+          }
+          else -> write(pageNumber + 1, it.result(), 0)
+        }
+      }
+    }
+  }
+
+  private fun prefetch(pageNumber: Int, page: Vault.Page<ContractState>) =
+    if (hasMore(pageNumber, page)) fetch(pageNumber + 1) else null
+}
@@ -15,19 +15,38 @@
  */
 package io.bluebank.braid.corda.services.vault
 
+import io.bluebank.braid.core.annotation.NonBlocking
+import io.bluebank.braid.core.http.end
+import io.bluebank.braid.core.logging.loggerFor
 import io.swagger.v3.oas.annotations.Operation
 import io.swagger.v3.oas.annotations.Parameter
+import io.swagger.v3.oas.annotations.enums.ParameterIn
+import io.swagger.v3.oas.annotations.media.Content
+import io.swagger.v3.oas.annotations.media.Schema
+import io.swagger.v3.oas.annotations.parameters.RequestBody
+import io.swagger.v3.oas.annotations.responses.ApiResponse
+import io.vertx.core.http.HttpHeaders
+import io.vertx.core.json.Json
 import io.vertx.ext.auth.User
+import io.vertx.ext.web.RoutingContext
 import net.corda.core.contracts.ContractState
 import net.corda.core.messaging.CordaRPCOps
 import net.corda.core.node.services.Vault
+import rx.schedulers.Schedulers
 import javax.ws.rs.QueryParam
 import javax.ws.rs.core.Context
+import javax.ws.rs.core.MediaType
+
+private const val EVENT_STREAM = "text/event-stream"
 
 class VaultService(
   private val getCordaRPCOps: (User?) -> CordaRPCOps
 ) {
 
+  companion object {
+    private val log = loggerFor<VaultService>()
+  }
+
   @Operation(description = "Queries the vault")
   fun vaultQueryBy(
     @Parameter(
@@ -63,4 +82,129 @@ class VaultService(
       throw RuntimeException("Unable to query contract state:" + type, e)
     }
   }
-}
\ No newline at end of file
+
+  @Operation(
+    description = "Streams every state matching the query, across all pages from the requested one, as newline delimited JSON or CSV",
+    parameters = [Parameter(
+      name = "format",
+      `in` = ParameterIn.QUERY,
+      description = "ndjson (the default) or csv",
+      schema = Schema(type = "string", allowableValues = ["ndjson", "csv"])
+    )],
+    requestBody = RequestBody(
+      content = [Content(
+        mediaType = MediaType.APPLICATION_JSON,
+        schema = Schema(implementation = VaultQuery::class)
+      )]
+    ),
+    responses = [ApiResponse(
+      content = [
+        Content(mediaType = "application/x-ndjson"),
+        Content(mediaType = "text/csv")
+      ]
+    )]
+  )
+  @NonBlocking
+  fun vaultExport(context: RoutingContext) {
+    val response = context.response()
+    try {
+      val format = context.request().getParam("format")
+        ?.let { ExportFormat.valueOf(it.toUpperCase()) }
+        ?: ExportFormat.NDJSON
+      val query = queryFrom(context)
+      VaultExport(context.vertx(), getCordaRPCOps(context.user()), query, format, response)
+        .start()
+    } catch (e: Exception) {
+      response.end(e, 400)
+    }
+  }
+
+  @Operation(
+    description = "Streams the vault page matching the query, followed by each update to the vault, " +
+      "as server-sent events when the client accepts text/event-stream, otherwise as newline delimited JSON. " +
+      "If the feed fails once streaming has started, the stream ends with an error object, " +
+      "sent as an error event for server-sent events",
+    requestBody = RequestBody(
+      content = [Content(
+        mediaType = MediaType.APPLICATION_JSON,
+        schema = Schema(implementation = VaultQuery::class)
+      )]
+    ),
+    responses = [ApiResponse(
+      content = [
+        Content(mediaType = "application/x-ndjson"),
+        Content(mediaType = EVENT_STREAM)
+      ]
+    )]
+  )
+  @NonBlocking
+  fun vaultTrackBy(context: RoutingContext) {
+    val response = context.response()
+    val query = try {
+      queryFrom(context)
+    } catch (e: Exception) {
+      response.end(e, 400)
+      return
+    }
+    val events = context.request().getHeader(HttpHeaders.ACCEPT)
+      ?.contains(EVENT_STREAM) ?: false
+    response.setChunked(true)
+      .putHeader(
+        HttpHeaders.CONTENT_TYPE,
+        if (events) EVENT_STREAM else "application/x-ndjson"
+      )
+      .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+
+    // the feed is opened with a blocking RPC call, and its items arrive on RPC threads
+    val vertxContext = context.vertx().orCreateContext
+    var closed = false
+    val subscription = VaultTracker.create(getCordaRPCOps(context.user()))
+      .vaultTrackBy(query)
+      .subscribeOn(Schedulers.io())
+      .subscribe({ item ->
+        vertxContext.runOnContext {
+          when {
+            closed -> Unit
+            // the feed can't be paused, and skipping updates would leave the client with the
+            // wrong states, so a client that can't keep up is disconnected to subscribe again
+            response.writeQueueFull() -> {
+              log.warn("closing vault feed for a client that is not keeping up with it")
+              closed = true
+              response.close()
+            }
+            else -> {
+              val json = Json.encode(item)
+              response.write(if (events) "data: $json\n\n" else "$json\n")
+            }
+          }
+        }
+      }, { error ->
+        vertxContext.runOnContext {
+          when {
+            closed -> Unit
+            // the status has been sent, so the error can only be reported in the stream
+            response.headWritten() -> {
+              log.warn("vault feed failed", error)
+              val json = Json.encode(mapOf("error" to (error.message ?: error.javaClass.name)))
+              response.end(if (events) "event: error\ndata: $json\n\n" else "$json\n")
+            }
+            else -> response.end(error)
+          }
+        }
+      }, {
+        vertxContext.runOnContext { if (!closed) response.end() }
+      })
+    response.closeHandler {
+      closed = true
+      subscription.unsubscribe()
+    }
+  }
+
+  private fun queryFrom(context: RoutingContext): VaultQuery {
+    val body = context.bodyAsString
+    return when {
+      body.isNullOrBlank() -> VaultQuery()
+      else -> Json.decodeValue(body, VaultQuery::class.java)
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services.vault
+
+import io.swagger.v3.oas.annotations.Operation
+import io.swagger.v3.oas.annotations.Parameter
+import net.corda.core.contracts.ContractState
+import net.corda.core.messaging.CordaRPCOps
+import net.corda.core.messaging.DataFeed
+import net.corda.core.node.AppServiceHub
+import net.corda.core.node.services.Vault
+import rx.Observable
+
+typealias VaultFeed = DataFeed<Vault.Page<ContractState>, Vault.Update<ContractState>>
+
+/**
+ * Exposed via JSON-RPC as the `vault` service, and used by [VaultService] for REST.
+ * The stream is the snapshot page followed by each [Vault.Update]; unsubscribing from it
+ * unsubscribes from the node's feed.
+ */
+class VaultTracker(private val trackBy: (VaultQuery) -> VaultFeed) {
+
+  companion object {
+    fun create(ops: CordaRPCOps) = VaultTracker {
+      ops.vaultTrackBy(it.criteria, it.paging, it.sorting, it.contractStateType)
+    }
+
+    fun create(serviceHub: AppServiceHub) = VaultTracker {
+      serviceHub.vaultService._trackBy(it.criteria, it.paging, it.sorting, it.contractStateType)
+    }
+  }
+
+  @Operation(description = "Streams the vault page matching the query, followed by each update to the vault")
+  fun vaultTrackBy(
+    @Parameter(description = "Vault query parameters") query: VaultQuery
+  ): Observable<Any> {
+    @Suppress("DEPRECATION")
+    return Observable.create { subscriber ->
+      val feed = trackBy(query)
+      subscriber.onNext(feed.snapshot)
+      // subscribe even if the client has gone, so that the node's feed is released at once
+      subscriber.add(feed.updates.subscribe(
+        { subscriber.onNext(it) },
+        { subscriber.onError(it) },
+        { subscriber.onCompleted() }
+      ))
+    }
+  }
+}
@@ -373,4 +373,29 @@ abstract class AbstractRestMounterTest(openApiVersion: Int = 2) {
       .end(Json.encode(result))
   }
 
-}
\ No newline at end of file
+  @Test
+  fun `that handlers run on the worker pool unless declared non blocking`(context: TestContext) {
+    val async1 = context.async()
+    client.get("${TestServiceApp.REST_API_ROOT}/thread")
+      .exceptionHandler(context::fail)
+      .handler { response ->
+        response.bodyHandler { body ->
+          context.assertTrue(body.toString().startsWith("braid-rest-worker-pool"))
+          async1.complete()
+        }
+      }
+      .end()
+    async1.awaitSuccess()
+
+    val async2 = context.async()
+    client.get("${TestServiceApp.REST_API_ROOT}/thread/non-blocking")
+      .exceptionHandler(context::fail)
+      .handler { response ->
+        response.bodyHandler { body ->
+          context.assertTrue(body.toString().startsWith("vert.x-eventloop-thread"))
+          async2.complete()
+        }
+      }
+      .end()
+  }
+}
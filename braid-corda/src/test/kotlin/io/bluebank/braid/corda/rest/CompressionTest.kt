@@ -0,0 +1,80 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.http.HttpClientOptions
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(VertxUnitRunner::class)
+class CompressionTest {
+  private val port = findFreePort()
+  private val service = TestServiceApp(port = port, service = TestService(), compression = true)
+  private val client = service.server.vertx.createHttpClient(HttpClientOptions().apply {
+    defaultHost = "localhost"
+    defaultPort = port
+    isSsl = true
+    isTrustAll = true
+    isVerifyHost = false
+  })
+
+  @Before
+  fun before(context: TestContext) {
+    service.whenReady().setHandler(context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after() {
+    client.close()
+    service.shutdown()
+  }
+
+  @Test
+  fun `that static assets are precompressed`(context: TestContext) {
+    val async = context.async()
+    client.get("${TestServiceApp.SWAGGER_ROOT}/swagger-ui-dist/swagger-ui-bundle.js")
+      .putHeader("Accept-Encoding", "gzip")
+      .exceptionHandler { context.fail(it) }
+      .handler { response ->
+        context.assertEquals(200, response.statusCode())
+        context.assertEquals("gzip", response.getHeader("Content-Encoding"))
+        context.assertTrue(response.getHeader("Cache-Control").contains("max-age"))
+        async.complete()
+      }
+      .end()
+  }
+
+  @Test
+  fun `that small responses are not compressed`(context: TestContext) {
+    val async = context.async()
+    client.get("${TestServiceApp.REST_API_ROOT}/hello")
+      .putHeader("Accept-Encoding", "gzip")
+      .exceptionHandler { context.fail(it) }
+      .handler { response ->
+        context.assertEquals("identity", response.getHeader("Content-Encoding"))
+        response.bodyHandler { body ->
+          context.assertEquals("hello", body.toString())
+          async.complete()
+        }
+      }
+      .end()
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.bluebank.braid.core.annotation.NonBlocking
+import io.bluebank.braid.core.async.catch
+import io.bluebank.braid.core.async.onSuccess
+import io.bluebank.braid.core.logging.loggerFor
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Future
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpClient
+import io.vertx.core.http.HttpClientOptions
+import io.vertx.core.http.HttpMethod
+import io.vertx.core.http.HttpServer
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+@NonBlocking
+fun flowResult() = "ok"
+
+/**
+ * Binds 1k flow-like endpoints once as a route each and once behind a single dispatch route,
+ * then logs the request rate achieved against the last registered endpoint of each.
+ * Run with `mvn test -Pbenchmarks`.
+ */
+@RunWith(VertxUnitRunner::class)
+class DispatchRoutingBenchmark {
+
+  companion object {
+    private val log = loggerFor<DispatchRoutingBenchmark>()
+    private const val FLOWS = 1_000
+    private const val REQUESTS = 2_000
+    private const val LAST_FLOW = "/api/cordapps/cordapp/flows/Flow${FLOWS - 1}"
+  }
+
+  private val vertx = Vertx.vertx()
+  private val routesPort = findFreePort()
+  private val dispatchPort = findFreePort()
+  private val flows = (0 until FLOWS).map { listOf("cordapp", "Flow$it") to ::flowResult }.toMap()
+
+  private val routesServer = createServer {
+    flows.keys.forEach { (cordapp, flow) -> post("/cordapps/$cordapp/flows/$flow", ::flowResult) }
+  }
+
+  private val dispatchServer = createServer {
+    dispatch(HttpMethod.POST, "/cordapps/:cordapp/flows/:flow", flows)
+  }
+
+  private val client = vertx.createHttpClient(
+    HttpClientOptions()
+      .setDefaultHost("localhost")
+      .setKeepAlive(true)
+      .setMaxPoolSize(8)
+  )
+
+  @Before
+  fun before(context: TestContext) {
+    routesServer.listen(routesPort, context.asyncAssertSuccess())
+    dispatchServer.listen(dispatchPort, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `measure dispatch against a route per flow`(context: TestContext) {
+    val async = context.async()
+    measure(routesPort)
+      .compose { routesRate -> measure(dispatchPort).map { dispatchRate -> routesRate to dispatchRate } }
+      .onSuccess { (routesRate, dispatchRate) ->
+        log.info("$REQUESTS requests over $FLOWS flows - route per flow: ${routesRate.toInt()} req/s, dispatch: ${dispatchRate.toInt()} req/s")
+        async.complete()
+      }
+      .catch { context.fail(it) }
+  }
+
+  private fun createServer(paths: RestMounter.(Router) -> Unit): HttpServer {
+    val router = Router.router(vertx)
+    RestMounter.mount(RestConfig().withApiPath("/api").withSwaggerPath("/swagger").withPaths(paths), router, vertx)
+    return vertx.createHttpServer().requestHandler(router)
+  }
+
+  private fun measure(port: Int): Future<Double> {
+    val result = Future.future<Double>()
+    val remaining = AtomicInteger(REQUESTS)
+    val start = System.nanoTime()
+    repeat(REQUESTS) {
+      client.post(port, "localhost", LAST_FLOW) { response ->
+        when {
+          response.statusCode() != 200 -> result.tryFail("request failed with ${response.statusCode()}")
+          else -> response.bodyHandler {
+            if (remaining.decrementAndGet() == 0) {
+              val elapsed = System.nanoTime() - start
+              result.tryComplete(REQUESTS * TimeUnit.SECONDS.toNanos(1).toDouble() / elapsed)
+            }
+          }
+        }
+      }
+        .exceptionHandler { result.tryFail(it) }
+        .end()
+    }
+    return result
+  }
+}
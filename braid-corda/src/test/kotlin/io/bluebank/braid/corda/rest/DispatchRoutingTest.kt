@@ -0,0 +1,106 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.bluebank.braid.core.annotation.NonBlocking
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpClientOptions
+import io.vertx.core.http.HttpMethod
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import kotlin.reflect.KCallable
+
+@NonBlocking
+fun issueFlow() = "issue"
+
+@NonBlocking
+fun moveFlow() = "move"
+
+@NonBlocking
+fun redeemFlow() = "redeem"
+
+@RunWith(VertxUnitRunner::class)
+class DispatchRoutingTest {
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private lateinit var flows: RestMounter.Dispatch<String>
+
+  private val server = vertx.createHttpServer().requestHandler(Router.router(vertx).also { router ->
+    val paths = RestConfig().withApiPath("/api").withSwaggerPath("/swagger").withPaths {
+      flows = dispatch(
+        HttpMethod.POST,
+        "/cordapps/:cordapp/flows/:flow",
+        mapOf<List<String>, KCallable<String>>(
+          listOf("cash", "Issue") to ::issueFlow,
+          listOf("cash", "Move") to ::moveFlow
+        )
+      )
+    }
+    RestMounter.mount(paths, router, vertx)
+  })
+
+  private val client = vertx.createHttpClient(
+    HttpClientOptions().setDefaultHost("localhost").setDefaultPort(port)
+  )
+
+  @Before
+  fun before(context: TestContext) {
+    server.listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that each flow is dispatched to its own binding`(context: TestContext) {
+    post(context, "/api/cordapps/cash/flows/Issue", 200, "issue")
+    post(context, "/api/cordapps/cash/flows/Move", 200, "move")
+  }
+
+  @Test
+  fun `that bindings added after mounting are dispatched`(context: TestContext) {
+    flows.add(mapOf<List<String>, KCallable<String>>(listOf("cash", "Redeem") to ::redeemFlow))
+    post(context, "/api/cordapps/cash/flows/Redeem", 200, "redeem")
+  }
+
+  @Test
+  fun `that dispatch falls through for unknown flows and cordapps`(context: TestContext) {
+    post(context, "/api/cordapps/cash/flows/Unknown", 404)
+    post(context, "/api/cordapps/bonds/flows/Issue", 404)
+  }
+
+  private fun post(context: TestContext, path: String, status: Int, body: String? = null) {
+    val async = context.async()
+    client.post(path) { response ->
+      context.assertEquals(status, response.statusCode())
+      response.bodyHandler {
+        if (body != null) context.assertEquals(body, it.toString())
+        async.complete()
+      }
+    }
+      .exceptionHandler { context.fail(it) }
+      .end()
+  }
+}
@@ -24,4 +24,13 @@ class PathsTest {
     val swaggerPath = path.toSwaggerPath()
     kotlin.test.assertEquals("/a/{b}/{c}/d/{e}", swaggerPath)
   }
-}
\ No newline at end of file
+
+  @Test
+  fun `that path params can be substituted in order`() {
+    val path = "/cordapps/:cordapp/flows/:flow"
+    kotlin.test.assertEquals(
+      "/cordapps/my-cordapp/flows/net.corda.Flow\$Initiator",
+      path.withPathParams(listOf("my-cordapp", "net.corda.Flow\$Initiator"))
+    )
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest
+
+import io.bluebank.braid.core.ratelimit.RateLimit
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.http.HttpClientOptions
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(VertxUnitRunner::class)
+class RateLimitTest {
+  private val port = findFreePort()
+  private val service = TestServiceApp(
+    port = port,
+    service = TestService(),
+    rateLimit = RateLimit(permitsPerSecond = 0.5, capacity = 1)
+  )
+  private val client = service.server.vertx.createHttpClient(HttpClientOptions().apply {
+    defaultHost = "localhost"
+    defaultPort = port
+    isSsl = true
+    isTrustAll = true
+    isVerifyHost = false
+  })
+
+  @Before
+  fun before(context: TestContext) {
+    service.whenReady().setHandler(context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after() {
+    client.close()
+    service.shutdown()
+  }
+
+  @Test
+  fun `that a request over the limit is refused with the time to retry`(context: TestContext) {
+    val async = context.async()
+    client.get("${TestServiceApp.REST_API_ROOT}/hello")
+      .exceptionHandler { context.fail(it) }
+      .handler { first ->
+        context.assertEquals(200, first.statusCode())
+        client.get("${TestServiceApp.REST_API_ROOT}/hello")
+          .exceptionHandler { context.fail(it) }
+          .handler { second ->
+            context.assertEquals(429, second.statusCode())
+            context.assertEquals("2", second.getHeader("Retry-After"))
+            async.complete()
+          }
+          .end()
+      }
+      .end()
+  }
+}
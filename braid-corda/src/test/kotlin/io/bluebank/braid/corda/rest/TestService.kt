@@ -18,6 +18,7 @@
 package io.bluebank.braid.corda.rest
 
 //import io.swagger.v3.oas.annotations.
+import io.bluebank.braid.core.annotation.NonBlocking
 import io.netty.buffer.ByteBuf
 import io.netty.handler.codec.http.HttpHeaderValues
 import io.swagger.v3.oas.annotations.Operation
@@ -47,6 +48,9 @@ class TestService {
   fun quietAsyncVoid(): Future<Void> = Future.succeededFuture()
   fun quietAsyncUnit(): Future<Unit> = Future.succeededFuture()
   fun quietUnit(): Unit = Unit
+  fun threadName(): String = Thread.currentThread().name
+  @NonBlocking
+  fun threadNameNonBlocking(): String = Thread.currentThread().name
   fun echo(msg: String) = "echo: $msg"
   fun getBuffer(): Buffer = Buffer.buffer("hello")
   fun getByteArray(): ByteArray = Buffer.buffer("hello").bytes
@@ -20,6 +20,7 @@ package io.bluebank.braid.corda.rest
 import io.bluebank.braid.corda.BraidConfig
 import io.bluebank.braid.corda.BraidServer
 import io.bluebank.braid.core.http.HttpServerConfig
+import io.bluebank.braid.core.ratelimit.RateLimit
 import io.bluebank.braid.core.security.JWTUtils
 import io.vertx.core.Future
 import io.vertx.core.Vertx
@@ -35,7 +36,9 @@ class TestServiceApp(
   port: Int,
   private val service: TestService,
   openApiVersion: Int = 3,
-  private val httpServerOptions: HttpServerOptions = HttpServerConfig.defaultServerOptions()
+  private val httpServerOptions: HttpServerOptions = HttpServerConfig.defaultServerOptions(),
+  private val compression: Boolean = false,
+  private val rateLimit: RateLimit? = null
 ) {
 
   companion object {
@@ -69,6 +72,8 @@ class TestServiceApp(
 //          enable the next line to generate the swagger definition everytime
 //          .withDebugMode() //
           .withOpenApiVersion(openApiVersion)
+          .let { if (compression) it.withCompression() else it }
+          .let { if (rateLimit != null) it.withRateLimit("Test Service", rateLimit) else it }
           .withPaths {
             group("Test Service") {
               unprotected {
@@ -76,6 +81,8 @@ class TestServiceApp(
                 get("/quiet-async-void", service::quietAsyncVoid)
                 get("/quiet-async-unit", service::quietAsyncUnit)
                 get("/quiet-unit", service::quietUnit)
+                get("/thread", service::threadName)
+                get("/thread/non-blocking", service::threadNameNonBlocking)
                 post("/login", thisObj::login)
                 get("/hello", service::sayHello)
                 get("/buffer", service::getBuffer)
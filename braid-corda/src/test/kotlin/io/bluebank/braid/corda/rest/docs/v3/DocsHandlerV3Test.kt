@@ -26,6 +26,8 @@ import org.hamcrest.MatcherAssert.assertThat
 import org.junit.BeforeClass
 import org.junit.Ignore
 import org.junit.Test
+import kotlin.concurrent.thread
+import kotlin.test.assertTrue
 
 class DocsHandlerV3Test {
   companion object {
@@ -115,6 +117,20 @@ class DocsHandlerV3Test {
     assertThat(schema?.required, not(hasItem("optionalString")))
   }
 
+  @Test
+  fun `that endpoints added while the document is served all appear in it`() {
+    val docs = DocsHandlerV3()
+    val adder = thread {
+      (1..200).forEach { docs.add("group", false, HttpMethod.POST, "added$it", this::myFunction) }
+    }
+    while (adder.isAlive) {
+      docs.getSwaggerString(null)
+    }
+    adder.join()
+    val swagger = docs.getSwaggerString(null)
+    assertTrue((1..200).all { swagger.contains("\"added$it\"") })
+  }
+
   @Test
   fun `should Print the swagger`() {
     val swagger = ObjectMapper()
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest.docs.v3
+
+import io.bluebank.braid.corda.BraidCordaJacksonSwaggerInit
+import io.swagger.v3.core.util.Json
+import io.vertx.core.http.HttpMethod
+import org.junit.BeforeClass
+import org.junit.Test
+import java.util.zip.GZIPInputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
+import kotlin.test.assertTrue
+
+class EncodedOpenAPITest {
+  companion object {
+    @BeforeClass
+    @JvmStatic
+    fun beforeClass() {
+      BraidCordaJacksonSwaggerInit.init()
+    }
+  }
+
+  private val docs = DocsHandlerV3().apply {
+    add("group", false, HttpMethod.GET, "/hello", this@EncodedOpenAPITest::hello)
+  }
+
+  fun hello(name: String) = "hello, $name"
+
+  @Test
+  fun `that encodings match a fresh serialisation for each server url`() {
+    val encoded = EncodedOpenAPI(docs.createOpenAPI(), "http://localhost:8080")
+    listOf("https://localhost:8443", "https://braid.example.com/api").forEach { url ->
+      val openAPI = docs.createOpenAPI().apply { servers.single().url = url }
+      val pretty = Json.pretty().writeValueAsString(openAPI)
+      val compact = Json.mapper().writeValueAsString(openAPI)
+      assertEquals(pretty, encoded.encode(url).toString())
+      assertEquals(compact, encoded.encode(url, pretty = false).toString())
+      val gzipped = encoded.encode(url, pretty = false, gzip = true)
+      assertEquals(compact, GZIPInputStream(gzipped.bytes.inputStream()).reader().readText())
+    }
+  }
+
+  @Test
+  fun `that the swagger string is invalidated when endpoints are added`() {
+    val before = docs.getSwaggerString()
+    assertEquals(before, docs.getSwaggerString())
+    docs.add("group", false, HttpMethod.GET, "/hello/again", this::hello)
+    val after = docs.getSwaggerString()
+    assertNotEquals(before, after)
+    assertTrue(after.contains("/hello/again"))
+  }
+}
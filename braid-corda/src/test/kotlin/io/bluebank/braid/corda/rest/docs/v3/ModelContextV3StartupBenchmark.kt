@@ -0,0 +1,59 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest.docs.v3
+
+import io.bluebank.braid.corda.BraidCordaJacksonSwaggerInit
+import io.bluebank.braid.core.logging.loggerFor
+import org.junit.BeforeClass
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+
+/**
+ * Resolves the models of a large synthetic cordapp jar one type at a time and in parallel,
+ * and logs the time taken by each. Run with `mvn test -Pbenchmarks`.
+ */
+class ModelContextV3StartupBenchmark {
+  companion object {
+    private val log = loggerFor<ModelContextV3StartupBenchmark>()
+    private const val CLASSES = 2_000
+
+    @BeforeClass
+    @JvmStatic
+    fun beforeClass() {
+      BraidCordaJacksonSwaggerInit.init()
+    }
+  }
+
+  private val types = SyntheticCordappJar(CLASSES).types
+
+  @Test
+  fun `measure parallel against sequential model resolution`() {
+    val sequential = ModelContextV3()
+    val sequentialNanos = time { types.forEach { sequential.addType(it) } }
+    val parallel = ModelContextV3()
+    val parallelNanos = time { parallel.addTypes(types) }
+
+    log.info("resolved ${types.size} types - sequential: ${TimeUnit.NANOSECONDS.toMillis(sequentialNanos)}ms, parallel: ${TimeUnit.NANOSECONDS.toMillis(parallelNanos)}ms")
+    assertEquals(sequential.models, parallel.models)
+  }
+
+  private fun time(fn: () -> Unit): Long {
+    val start = System.nanoTime()
+    fn()
+    return System.nanoTime() - start
+  }
+}
@@ -28,6 +28,8 @@ import org.junit.Assert.assertThat
 import org.junit.BeforeClass
 import org.junit.Ignore
 import org.junit.Test
+import java.util.concurrent.ForkJoinPool
+import kotlin.test.assertEquals
 import kotlin.test.assertFalse
 import kotlin.test.assertTrue
 
@@ -40,6 +42,21 @@ class ModelContextV3Test {
     }
   }
 
+  @Test
+  fun `that types resolved in parallel give the same models as one at a time`() {
+    val types = SyntheticCordappJar(50).types
+    val sequential = ModelContextV3()
+    types.forEach { sequential.addType(it) }
+    val parallel = ModelContextV3()
+    val pool = ForkJoinPool(4)
+    parallel.addTypes(types, pool)
+    pool.shutdown()
+
+    assertEquals(sequential.models.keys.toList(), parallel.models.keys.toList())
+    assertEquals(sequential.models, parallel.models)
+    types.forEach { assertTrue((it as Class<*>).swaggerTypeName() in parallel.models) }
+  }
+
   @Test
   fun `should exclude availableComponentGroups from TraversableTransaction`() {
 
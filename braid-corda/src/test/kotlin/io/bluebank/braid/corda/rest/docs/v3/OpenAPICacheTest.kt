@@ -0,0 +1,86 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest.docs.v3
+
+import io.bluebank.braid.corda.BraidCordaJacksonSwaggerInit
+import io.bluebank.braid.corda.rest.AuthSchema
+import io.bluebank.braid.core.utils.PathsClassLoader
+import io.vertx.core.http.HttpMethod
+import org.junit.BeforeClass
+import org.junit.Test
+import java.io.File
+import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class OpenAPICacheTest {
+  companion object {
+    @BeforeClass
+    @JvmStatic
+    fun beforeClass() {
+      BraidCordaJacksonSwaggerInit.init()
+    }
+  }
+
+  private val dir = createTempDir().apply { deleteOnExit() }
+
+  data class Greeting(val name: String, val count: Int)
+
+  fun greet(greeting: Greeting) = "hello, ${greeting.name}"
+
+  @Test
+  fun `that a cached document is served without resolving endpoints or types`() {
+    val generated = DocsHandlerV3(cache = OpenAPICache(dir, "key"))
+      .apply { add("group", false, HttpMethod.POST, "/greet", this@OpenAPICacheTest::greet) }
+      .also { it.complete() }
+      .createOpenAPI()
+    assertNotNull(OpenAPICache(dir, "key").read())
+
+    val cached = DocsHandlerV3(cache = OpenAPICache(dir, "key"))
+    cached.add("group", false, HttpMethod.POST, "/ignored", this::greet)
+    val served = cached.createOpenAPI()
+    assertEquals(generated.paths.keys, served.paths.keys)
+    assertEquals(generated.components.schemas.keys, served.components.schemas.keys)
+  }
+
+  @Test
+  fun `that a different key misses the cache`() {
+    DocsHandlerV3(cache = OpenAPICache(dir, "key"))
+      .apply { add("group", false, HttpMethod.POST, "/greet", this@OpenAPICacheTest::greet) }
+      .complete()
+    assertNull(OpenAPICache(dir, "other-key").read())
+  }
+
+  @Test
+  fun `that the jars cache key includes the OpenAPI version and auth schema`() {
+    val jar = File(dir, "cordapp.jar").apply { writeText("cordapp") }
+    val classLoader = PathsClassLoader.jarsClassLoader(jar.path)
+    val key = OpenAPICache.forJars(dir, classLoader, 3, AuthSchema.None, "1.0")!!.key
+    assertEquals(key, OpenAPICache.forJars(dir, classLoader, 3, AuthSchema.None, "1.0")!!.key)
+    assertNotEquals(key, OpenAPICache.forJars(dir, classLoader, 3, AuthSchema.Token, "1.0")!!.key)
+    assertNotEquals(key, OpenAPICache.forJars(dir, classLoader, 2, AuthSchema.None, "1.0")!!.key)
+    assertNotEquals(key, OpenAPICache.forJars(dir, classLoader, 3, AuthSchema.None, "1.1")!!.key)
+    assertNull(OpenAPICache.forJars(dir, ClassLoader.getSystemClassLoader(), 3, AuthSchema.None, "1.0"))
+  }
+
+  @Test
+  fun `that a build of unknown version is not cached`() {
+    val jar = File(dir, "cordapp.jar").apply { writeText("cordapp") }
+    val classLoader = PathsClassLoader.jarsClassLoader(jar.path)
+    assertNull(OpenAPICache.forJars(dir, classLoader, 3, AuthSchema.None, version = null))
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.rest.docs.v3
+
+import io.bluebank.braid.core.synth.writeDefaultConstructor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import java.io.File
+import java.io.FileOutputStream
+import java.lang.reflect.Type
+import java.net.URLClassLoader
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+/**
+ * A cordapp jar of [classes] generated public classes, each with a few simple fields and,
+ * within each run of ten, a reference to the class before it
+ */
+class SyntheticCordappJar(private val classes: Int) {
+  companion object {
+    private const val PACKAGE = "io/bluebank/braid/synthetic/cordapp"
+  }
+
+  val types: List<Type> by lazy {
+    val classLoader = URLClassLoader(arrayOf(createJar().toURI().toURL()), javaClass.classLoader)
+    (0 until classes).map { classLoader.loadClass(className(it).replace('/', '.')) }
+  }
+
+  private fun className(index: Int) = "$PACKAGE/State$index"
+
+  private fun createJar(): File {
+    val jar = File.createTempFile("synthetic-cordapp-", ".jar").apply { deleteOnExit() }
+    JarOutputStream(FileOutputStream(jar)).use { output ->
+      (0 until classes).forEach { index ->
+        output.putNextEntry(JarEntry("${className(index)}.class"))
+        output.write(createClass(index))
+        output.closeEntry()
+      }
+    }
+    return jar
+  }
+
+  private fun createClass(index: Int): ByteArray {
+    return ClassWriter(0).apply {
+      visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className(index), null, "java/lang/Object", null)
+      visitField(Opcodes.ACC_PUBLIC, "name", "Ljava/lang/String;", null, null).visitEnd()
+      visitField(Opcodes.ACC_PUBLIC, "quantity", "I", null, null).visitEnd()
+      visitField(Opcodes.ACC_PUBLIC, "amount", "Ljava/math/BigDecimal;", null, null).visitEnd()
+      visitField(Opcodes.ACC_PUBLIC, "created", "Ljava/time/Instant;", null, null).visitEnd()
+      if (index % 10 > 0) {
+        visitField(Opcodes.ACC_PUBLIC, "previous", "L${className(index - 1)};", null, null).visitEnd()
+      }
+      writeDefaultConstructor()
+      visitEnd()
+    }.toByteArray()
+  }
+}
@@ -15,12 +15,16 @@
  */
 package io.bluebank.braid.corda.server
 
+import io.bluebank.braid.core.ratelimit.RateLimit
+import io.vertx.core.json.DecodeException
 import io.vertx.core.json.Json
 import io.vertx.kotlin.core.json.json
 import io.vertx.kotlin.core.json.obj
 import net.corda.core.utilities.NetworkHostAndPort
 import org.junit.Test
 import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
 
 class BraidServerConfigTest {
   @Test
@@ -42,4 +46,51 @@ class BraidServerConfigTest {
     )
     assertEquals(expected, actual)
   }
-}
\ No newline at end of file
+
+  @Test
+  fun `that we can read http2 config`() {
+    val json = json {
+      obj(
+        "networkHostAndPort" to "localhost:20022",
+        "http2" to true,
+        "http2MaxConcurrentStreams" to 250,
+        "http2InitialWindowSize" to 131072
+      )
+    }.toString()
+    val actual = Json.decodeValue(json, BraidServerConfig::class.java)
+    assertTrue(actual.http2)
+    assertEquals(250L, actual.http2MaxConcurrentStreams)
+    assertEquals(131072, actual.http2InitialWindowSize)
+    assertEquals(BraidServerConfig.DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE, actual.http2ConnectionWindowSize)
+
+    val options = actual.httpServerOptions()
+    assertEquals(250L, options.initialSettings.maxConcurrentStreams)
+    assertEquals(131072, options.initialSettings.initialWindowSize)
+  }
+
+  @Test
+  fun `that we can read rate limit config`() {
+    val json = json {
+      obj(
+        "networkHostAndPort" to "localhost:20022",
+        "rateLimits" to obj(
+          "vault" to obj("permitsPerSecond" to 5.0, "capacity" to 20),
+          "network" to obj("permitsPerSecond" to 2.5)
+        )
+      )
+    }.toString()
+    val actual = Json.decodeValue(json, BraidServerConfig::class.java)
+    assertEquals(
+      mapOf("vault" to RateLimit(5.0, 20), "network" to RateLimit(2.5)),
+      actual.rateLimits
+    )
+  }
+
+  @Test
+  fun `that a flow batch parallelism of less than 1 is rejected`() {
+    val json = json {
+      obj("networkHostAndPort" to "localhost:20022", "flowBatchParallelism" to 0)
+    }.toString()
+    assertFailsWith<DecodeException> { Json.decodeValue(json, BraidServerConfig::class.java) }
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server
+
+import org.junit.Test
+import java.io.File
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ClassIndexTest {
+  private val core = ClasspathElementIndex(
+    "/libs/core-4.1.jar", 1L, 1_000L, 100L, 10L, listOf(
+      IndexedClass("core.State", null, emptyList(), emptyList(), isInterface = true, isAbstract = true),
+      IndexedClass("core.LinearState", null, listOf("core.State"), emptyList(), isInterface = true, isAbstract = true),
+      IndexedClass("core.Serializable", null, emptyList(), emptyList(), isInterface = true, isAbstract = true),
+      IndexedClass("core.Base", "java.lang.Object", emptyList(), listOf("core.Serializable"), isInterface = false, isAbstract = true)
+    )
+  )
+  private val cordapp = ClasspathElementIndex(
+    "/cordapps/my-cordapp-1.0.jar", 2L, 2_000L, 200L, 20L, listOf(
+      IndexedClass("app.MyState", "core.Base", listOf("core.LinearState"), emptyList(), isInterface = false, isAbstract = false),
+      IndexedClass("app.MyState\$Inner", "java.lang.Object", emptyList(), emptyList(), isInterface = false, isAbstract = false),
+      IndexedClass("core.Base", "java.lang.Object", emptyList(), emptyList(), isInterface = false, isAbstract = false)
+    )
+  )
+  private val index = ClassIndex(listOf(core, cordapp))
+
+  private fun scanned(name: String) = index.classes().single { it.second.name == name }
+
+  @Test
+  fun `that classes are classified across classpath elements`() {
+    val (cordappName, myState) = scanned("app.MyState")
+    assertEquals("my-cordapp", cordappName)
+    assertTrue(myState.implementsInterface("core.State"))
+    assertFalse(myState.implementsInterface("core.Serializable"))
+    assertTrue(myState.extendsSuperclass("core.Base"))
+    assertTrue(myState.hasDeepAnnotation("core.Serializable"))
+    assertFalse(myState.hasAnnotation("core.Serializable"))
+    assertEquals(listOf("app.MyState"), scanned("app.MyState\$Inner").second.outerClassNames)
+  }
+
+  @Test
+  fun `that the first element on the classpath declaring a class wins`() {
+    val (cordappName, base) = scanned("core.Base")
+    assertEquals("core", cordappName)
+    assertTrue(base.isAbstract)
+    assertEquals(index.classes().count(), index.classes().map { it.second.name }.distinct().count())
+  }
+
+  @Test
+  fun `that an index can be written and read back`() {
+    val file = File.createTempFile("class-index-", ".bin").apply { deleteOnExit() }
+    ClassIndex.write(file, listOf(core, cordapp))
+    assertEquals(listOf(core, cordapp), ClassIndex.read(file))
+  }
+}
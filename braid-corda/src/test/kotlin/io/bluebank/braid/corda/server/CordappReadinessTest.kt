@@ -0,0 +1,47 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server
+
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class CordappReadinessTest {
+  @Test
+  fun `that a cordapp is only unavailable while it is pending`() {
+    val readiness = CordappReadiness()
+    assertTrue(readiness.isReady("unknown"))
+
+    readiness.pending("b-cordapp")
+    readiness.pending("a-cordapp")
+    assertFalse(readiness.isReady("a-cordapp"))
+    assertEquals(mapOf("a-cordapp" to false, "b-cordapp" to false), readiness.readiness())
+
+    readiness.ready("a-cordapp")
+    readiness.pending("a-cordapp")
+    assertTrue(readiness.isReady("a-cordapp"))
+    assertEquals(listOf("a-cordapp", "b-cordapp"), readiness.readiness().keys.toList())
+  }
+
+  @Test
+  fun `that the cordapp of a flow is known once it is pending`() {
+    val readiness = CordappReadiness()
+    readiness.pending("a-cordapp", listOf("a.Flow"))
+    assertEquals("a-cordapp", readiness.cordappOf("a.Flow"))
+    assertEquals(null, readiness.cordappOf("b.Flow"))
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import com.nhaarman.mockito_kotlin.mock
+import io.vertx.core.Future
+import io.vertx.ext.auth.User
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class FlowAdmissionTest {
+  private var now = 0L
+  private val started = mutableListOf<String>()
+  private val flows = mutableMapOf<String, Future<Any?>>()
+  private val alice = mock<User>()
+  private val bob = mock<User>()
+  private val names = mapOf(alice to "alice", bob to "bob")
+
+  private fun admission(maxConcurrent: Int, maxQueued: Int = 10) =
+    FlowAdmission(
+      maxConcurrent,
+      maxQueued,
+      { names[it] },
+      // only bob may start flows at high priority
+      { if (it == bob) FlowPriority.HIGH else null },
+      clock = { now }
+    )
+
+  private fun FlowAdmission.admit(user: User?, name: String, priority: FlowPriority? = null) =
+    admit(user, priority) {
+      started.add(name)
+      Future.future<Any?>().also { flows[name] = it }
+    }
+
+  @Test
+  fun `that flows beyond the limit wait for a running flow to complete`() {
+    val admission = admission(1)
+    val first = admission.admit(alice, "1")
+    val second = admission.admit(alice, "2")
+    assertEquals(listOf("1"), started)
+    now = 100
+    flows["1"]!!.complete("one")
+    assertEquals("one", first.result())
+    assertEquals(listOf("1", "2"), started)
+    flows["2"]!!.complete("two")
+    assertEquals("two", second.result())
+
+    val metrics = admission.metrics()
+    assertEquals(0, metrics.running)
+    assertEquals(2L, metrics.admitted)
+    assertEquals(50.0, metrics.meanWaitMillis)
+    assertEquals(100L, metrics.maxWaitMillis)
+  }
+
+  @Test
+  fun `that waiting flows start by priority and then in turn per user`() {
+    val admission = admission(1)
+    admission.admit(alice, "running")
+    admission.admit(alice, "alice-1")
+    admission.admit(alice, "alice-2")
+    admission.admit(bob, "bob-1")
+    admission.admit(bob, "low", FlowPriority.LOW)
+    admission.admit(bob, "high", FlowPriority.HIGH)
+    now = 10
+    assertEquals(mapOf(FlowPriority.HIGH to 1, FlowPriority.NORMAL to 3, FlowPriority.LOW to 1), admission.metrics().queued)
+    assertEquals(10L, admission.metrics().oldestWaitMillis)
+
+    listOf("running", "high", "alice-1", "bob-1", "alice-2").forEach { flows[it]!!.complete() }
+    assertEquals(listOf("running", "high", "alice-1", "bob-1", "alice-2", "low"), started)
+  }
+
+  @Test
+  fun `that high priority is only given to users allowed it`() {
+    val admission = admission(1)
+    admission.admit(alice, "running")
+    admission.admit(bob, "bob", FlowPriority.NORMAL)
+    admission.admit(alice, "alice", FlowPriority.HIGH)
+    admission.admit(null, "anonymous", FlowPriority.HIGH)
+    admission.admit(alice, "low", FlowPriority.LOW)
+    assertEquals(mapOf(FlowPriority.HIGH to 0, FlowPriority.NORMAL to 3, FlowPriority.LOW to 1), admission.metrics().queued)
+
+    listOf("running", "bob", "alice", "anonymous").forEach { flows[it]!!.complete() }
+    assertEquals(listOf("running", "bob", "alice", "anonymous", "low"), started)
+  }
+
+  @Test
+  fun `that a long run of flows failing at once does not overflow the stack`() {
+    val admission = admission(1, 100_000)
+    admission.admit(alice, "running")
+    val failures = (1..50_000).map {
+      admission.admit(alice, FlowPriority.NORMAL) { Future.failedFuture(IllegalStateException("no node")) }
+    }
+    flows["running"]!!.complete()
+    assertTrue(failures.all { it.failed() })
+    assertEquals(0, admission.metrics().running)
+  }
+
+  @Test
+  fun `that flows are refused when the queue is full`() {
+    val admission = admission(1, 1)
+    admission.admit(alice, "running")
+    admission.admit(alice, "waiting")
+    val refused = admission.admit(bob, "refused")
+    assertEquals(503, (refused.cause() as HttpStatusException).statusCode)
+    assertEquals(1L, admission.metrics().rejected)
+  }
+
+  @Test
+  fun `that a flow that fails to start makes room for the next`() {
+    val admission = admission(1)
+    val failed = admission.admit(alice, FlowPriority.NORMAL) { throw IllegalStateException("no node") }
+    admission.admit(alice, "next")
+    assertEquals("no node", failed.cause().message)
+    assertEquals(listOf("next"), started)
+  }
+
+  @Test
+  fun `that priorities are parsed from the header`() {
+    assertEquals(FlowPriority.HIGH, FlowPriority.parse(" High"))
+    assertEquals(null, FlowPriority.parse(null))
+    assertFailsWith<HttpStatusException> { FlowPriority.parse("urgent") }
+  }
+}
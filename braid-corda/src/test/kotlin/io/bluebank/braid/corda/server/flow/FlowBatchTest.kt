@@ -0,0 +1,158 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.corda.serialisation.serializers.BraidCordaJacksonInit
+import io.bluebank.braid.corda.server.CordappReadiness
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Future
+import io.vertx.core.Vertx
+import io.vertx.core.buffer.Buffer
+import io.vertx.core.http.HttpClient
+import io.vertx.core.json.Json
+import io.vertx.core.json.JsonArray
+import io.vertx.core.json.JsonObject
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import io.vertx.ext.web.handler.BodyHandler
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.atomic.AtomicInteger
+import javax.ws.rs.HeaderParam
+
+data class BatchPayload(val message: String)
+
+@RunWith(VertxUnitRunner::class)
+class FlowBatchTest {
+
+  companion object {
+    init {
+      BraidCordaJacksonInit.init()
+    }
+  }
+
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private val running = AtomicInteger()
+  private val maxRunning = AtomicInteger()
+  private val initiators = FlowInitiators()
+  private val readiness = CordappReadiness()
+  private val batch = FlowBatch(initiators, 2, readiness)
+  private lateinit var client: HttpClient
+
+  @Suppress("unused")
+  fun echo(@HeaderParam("invocation-id") invocationId: String?, payload: BatchPayload): Future<Any?> {
+    val concurrent = running.incrementAndGet()
+    maxRunning.accumulateAndGet(concurrent) { a, b -> Math.max(a, b) }
+    val result = Future.future<Any?>()
+    vertx.setTimer(20) {
+      running.decrementAndGet()
+      when (payload.message) {
+        "fail" -> result.fail("failed on purpose")
+        else -> result.complete("$invocationId: ${payload.message}")
+      }
+    }
+    return result
+  }
+
+  @Before
+  fun before(context: TestContext) {
+    initiators.add(mapOf("EchoFlow" to this::echo))
+    val router = Router.router(vertx)
+    router.route().handler(BodyHandler.create())
+    router.post("/cordapps/flows/batch").handler { batch.handle(it) }
+    client = vertx.createHttpClient()
+    vertx.createHttpServer().requestHandler(router).listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that a batch of flows is started with bounded parallelism`(context: TestContext) {
+    val async = context.async()
+    val items = JsonArray((1..5).map { item("EchoFlow", "hello $it", "id-$it") })
+      .add(item("EchoFlow", "fail", "id-fail"))
+      .add(item("UnknownFlow", "hello", "id-unknown"))
+
+    client.post(port, "localhost", "/cordapps/flows/batch") { response ->
+      context.assertEquals(200, response.statusCode())
+      val body = Buffer.buffer()
+      response.handler { body.appendBuffer(it) }
+      response.endHandler {
+        val results = body.toString().lines()
+          .filter { it.isNotEmpty() }
+          .map { Json.decodeValue(it, FlowBatchResult::class.java) }
+          .associateBy { it.index }
+        context.assertEquals(7, results.size)
+        (0 until 5).forEach {
+          context.assertEquals("id-${it + 1}: hello ${it + 1}", results.getValue(it).result)
+        }
+        context.assertEquals("failed on purpose", results.getValue(5).error)
+        context.assertEquals("flow UnknownFlow is not registered", results.getValue(6).error)
+        context.assertTrue(maxRunning.get() <= 2, "at most 2 flows should run at once")
+        async.complete()
+      }
+    }
+      .exceptionHandler { context.fail(it) }
+      .end(items.encode())
+  }
+
+  @Test
+  fun `that a malformed batch is rejected`(context: TestContext) {
+    val async = context.async()
+    client.post(port, "localhost", "/cordapps/flows/batch") { response ->
+      context.assertEquals(400, response.statusCode())
+      async.complete()
+    }
+      .exceptionHandler { context.fail(it) }
+      .end("{ not a batch")
+  }
+
+  @Test
+  fun `that a batch with a flow of a cordapp that is not ready is unavailable`(context: TestContext) {
+    readiness.pending("echo-cordapp", listOf("EchoFlow"))
+    val items = JsonArray()
+      .add(item("UnknownFlow", "hello", "id-1"))
+      .add(item("EchoFlow", "hello", "id-2"))
+    val async = context.async()
+    client.post(port, "localhost", "/cordapps/flows/batch") { response ->
+      context.assertEquals(503, response.statusCode())
+      context.assertEquals("1", response.getHeader("Retry-After"))
+      context.assertEquals(0, maxRunning.get())
+      async.complete()
+    }
+      .exceptionHandler { context.fail(it) }
+      .end(items.encode())
+  }
+
+  @Test(expected = IllegalArgumentException::class)
+  fun `that flows must be started at least one at a time`() {
+    FlowBatch(initiators, 0)
+  }
+
+  private fun item(flow: String, message: String, invocationId: String) =
+    JsonObject()
+      .put("flow", flow)
+      .put("payload", JsonObject().put("message", message))
+      .put("invocationId", invocationId)
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class FlowJobStoreTest {
+  @get:Rule
+  val folder = TemporaryFolder()
+
+  private var now = 0L
+
+  @Test
+  fun `that a job is only returned to its owner`() {
+    val store = FlowJobStore(clock = { now })
+    store.put("1", "alice", "{}")
+    assertEquals("{}", store.get("1", "alice"))
+    assertNull(store.get("1", "bob"))
+    assertNull(store.get("2", "alice"))
+  }
+
+  @Test
+  fun `that jobs expire`() {
+    val store = FlowJobStore(ttlMillis = 1000, clock = { now })
+    store.put("1", null, "one")
+    now = 500
+    store.put("2", null, "two")
+    now = 1200
+    assertNull(store.get("1", null))
+    assertEquals("two", store.get("2", null))
+    assertEquals(1, store.size())
+  }
+
+  @Test
+  fun `that the oldest jobs are spilled to disk beyond the memory budget`() {
+    val dir = folder.newFolder()
+    // each status of 10 characters is estimated at 20 bytes
+    val store = FlowJobStore(maxBytes = 50, spillDir = dir, clock = { now })
+    (1..3).forEach { store.put(it.toString(), null, "status-$it".padEnd(10)) }
+    assertEquals(2, store.inMemory())
+    assertEquals(1, dir.listFiles().size)
+    assertEquals("status-1".padEnd(10), store.get("1", null))
+
+    now = FlowJobStore.DEFAULT_TTL_MILLIS
+    assertNull(store.get("1", null))
+    assertEquals(0, dir.listFiles().size)
+  }
+
+  @Test
+  fun `that jobs beyond the memory budget are dropped without a spill directory`() {
+    val store = FlowJobStore(maxBytes = 50, clock = { now })
+    (1..3).forEach { store.put(it.toString(), null, "status-$it".padEnd(10)) }
+    assertNull(store.get("1", null))
+    assertEquals(2, store.size())
+  }
+}
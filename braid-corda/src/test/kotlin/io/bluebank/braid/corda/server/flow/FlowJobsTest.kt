@@ -0,0 +1,170 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import io.bluebank.braid.corda.server.progress.ProgressNotification
+import io.bluebank.braid.corda.server.progress.ProgressTopics
+import io.bluebank.braid.corda.serialisation.serializers.BraidCordaJacksonInit
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Future
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpClient
+import io.vertx.core.http.HttpClientResponse
+import io.vertx.core.json.Json
+import io.vertx.core.json.JsonObject
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import io.vertx.ext.web.handler.BodyHandler
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import javax.ws.rs.HeaderParam
+
+@RunWith(VertxUnitRunner::class)
+class FlowJobsTest {
+
+  companion object {
+    init {
+      BraidCordaJacksonInit.init()
+    }
+  }
+
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private val progress = ProgressTopics(vertx.eventBus())
+  private val initiators = FlowInitiators()
+  private val jobs = FlowJobs(initiators, progress, FlowJobStore(), maxRunning = 1)
+  private val release = Future.future<Any?>()
+  private lateinit var client: HttpClient
+
+  @Suppress("unused")
+  fun slow(@HeaderParam("invocation-id") invocationId: String?, payload: BatchPayload): Future<Any?> {
+    progress.publish(null, ProgressNotification().withInvocationId(invocationId).withStep("Waiting"))
+    return release.map<Any?> { "${payload.message} done" }
+  }
+
+  @Before
+  fun before(context: TestContext) {
+    initiators.add(mapOf("SlowFlow" to this::slow))
+    val router = Router.router(vertx)
+    router.route().handler(BodyHandler.create())
+    val async = jobs.handler("flow")
+    router.post("/api/rest/cordapps/test/flows/:flow").handler { async(it) }
+    router.post("/api/rest/cordapps/test/flows/:flow").handler { it.response().end("sync") }
+    router.get("/api/rest/jobs/:id").handler { jobs.job(it) }
+    client = vertx.createHttpClient()
+    vertx.createHttpServer().requestHandler(router).listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that an async flow is accepted at once and its result can be polled`(context: TestContext) {
+    val async = context.async()
+    client.post(port, "localhost", "/api/rest/cordapps/test/flows/SlowFlow") { response ->
+      context.assertEquals(202, response.statusCode())
+      val location = response.getHeader("Location")
+      response.bodyHandler { body ->
+        val accepted = Json.decodeValue(body.toString(), FlowJobStatus::class.java)
+        context.assertEquals(FlowJobStatus.Status.RUNNING, accepted.status)
+        context.assertEquals("/api/rest/jobs/${accepted.id}", location)
+        poll(location, context, { it.step != null }) { running ->
+          context.assertEquals(FlowJobStatus.Status.RUNNING, running.status)
+          context.assertEquals("Waiting", running.step)
+          release.complete()
+          poll(location, context, { it.status != FlowJobStatus.Status.RUNNING }) { done ->
+            context.assertEquals(FlowJobStatus.Status.SUCCEEDED, done.status)
+            context.assertEquals("hello done", done.result)
+            async.complete()
+          }
+        }
+      }
+    }
+      .putHeader("Prefer", FlowJobs.RESPOND_ASYNC)
+      .exceptionHandler { context.fail(it) }
+      .end(JsonObject().put("message", "hello").encode())
+  }
+
+  @Test
+  fun `that jobs are refused once too many are running`(context: TestContext) {
+    val async = context.async()
+    submit(context) { first ->
+      context.assertEquals(202, first.statusCode())
+      submit(context) { second ->
+        context.assertEquals(503, second.statusCode())
+        release.complete()
+        async.complete()
+      }
+    }
+  }
+
+  @Test
+  fun `that requests without the async preference are passed on`(context: TestContext) {
+    val async = context.async()
+    client.post(port, "localhost", "/api/rest/cordapps/test/flows/SlowFlow") { response ->
+      response.bodyHandler {
+        context.assertEquals("sync", it.toString())
+        async.complete()
+      }
+    }
+      .exceptionHandler { context.fail(it) }
+      .end(JsonObject().put("message", "hello").encode())
+  }
+
+  @Test
+  fun `that an unknown job is not found`(context: TestContext) {
+    val async = context.async()
+    client.getNow(port, "localhost", "/api/rest/jobs/unknown") { response ->
+      context.assertEquals(404, response.statusCode())
+      async.complete()
+    }
+  }
+
+  private fun submit(context: TestContext, handler: (HttpClientResponse) -> Unit) {
+    client.post(port, "localhost", "/api/rest/cordapps/test/flows/SlowFlow", handler)
+      .putHeader("Prefer", FlowJobs.RESPOND_ASYNC)
+      .exceptionHandler { context.fail(it) }
+      .end(JsonObject().put("message", "hello").encode())
+  }
+
+  /**
+   * fetches the job at [location] until it satisfies [until], as the flow progresses on
+   * other threads, and then [verify]s it
+   */
+  private fun poll(
+    location: String,
+    context: TestContext,
+    until: (FlowJobStatus) -> Boolean,
+    verify: (FlowJobStatus) -> Unit
+  ) {
+    client.getNow(port, "localhost", location) { response ->
+      context.assertEquals(200, response.statusCode())
+      response.bodyHandler {
+        val status = Json.decodeValue(it.toString(), FlowJobStatus::class.java)
+        when {
+          until(status) -> verify(status)
+          else -> vertx.setTimer(10) { poll(location, context, until, verify) }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.flow
+
+import com.nhaarman.mockito_kotlin.mock
+import io.vertx.core.Future
+import io.vertx.ext.auth.User
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class IdempotentFlowStartsTest {
+  private var now = 0L
+  private var started = 0
+  private val alice = mock<User>()
+  private val bob = mock<User>()
+  private val names = mapOf(alice to "alice", bob to "bob")
+  private val starts = IdempotentFlowStarts(1000, { names[it] }, { now })
+
+  private fun start(future: Future<Any?>): () -> Future<Any?> = {
+    started++
+    future
+  }
+
+  @Test
+  fun `that a repeated invocation attaches to the running flow`() {
+    val flow = Future.future<Any?>()
+    val first = starts.start(alice, "1", "Flow", start(flow))
+    val second = starts.start(alice, "1", "Flow", start(Future.future()))
+    assertEquals(1, started)
+    flow.complete("done")
+    assertEquals("done", first.result())
+    assertEquals("done", second.result())
+  }
+
+  @Test
+  fun `that a repeated invocation returns the result until the window ends`() {
+    starts.start(alice, "1", "Flow", start(Future.succeededFuture("done")))
+    now = 1000
+    assertEquals("done", starts.start(alice, "1", "Flow", start(Future.succeededFuture("again"))).result())
+    assertEquals(1, started)
+    now = 2001
+    assertEquals("again", starts.start(alice, "1", "Flow", start(Future.succeededFuture("again"))).result())
+    assertEquals(2, started)
+  }
+
+  @Test
+  fun `that invocations are separate per user and without an id`() {
+    starts.start(alice, "1", "Flow", start(Future.succeededFuture("alice")))
+    assertEquals("bob", starts.start(bob, "1", "Flow", start(Future.succeededFuture("bob"))).result())
+    starts.start(alice, null, "Flow", start(Future.succeededFuture("none")))
+    starts.start(alice, null, "Flow", start(Future.succeededFuture("none")))
+    assertEquals(4, started)
+  }
+
+  @Test
+  fun `that a failed flow can be retried`() {
+    val failed = starts.start(alice, "1", "Flow", start(Future.failedFuture("failed")))
+    assertTrue(failed.failed())
+    assertEquals("done", starts.start(alice, "1", "Flow", start(Future.succeededFuture("done"))).result())
+    assertEquals(2, started)
+  }
+
+  @Test
+  fun `that reusing an invocation id for another flow is a conflict`() {
+    starts.start(alice, "1", "Flow", start(Future.future()))
+    val other = starts.start(alice, "1", "OtherFlow", start(Future.future()))
+    assertEquals(409, (other.cause() as HttpStatusException).statusCode)
+    assertEquals(1, started)
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.progress
+
+import org.junit.Test
+import kotlin.test.assertEquals
+
+class ProgressHistoryTest {
+  private var now = 0L
+
+  @Test
+  fun `that notifications are replayed per address in order`() {
+    val history = ProgressHistory(clock = { now })
+    history.record("a", "1")
+    history.record("b", "x")
+    history.record("a", "2")
+    assertEquals(listOf("1", "2"), history.replay("a"))
+    assertEquals(listOf("x"), history.replay("b"))
+    assertEquals(emptyList(), history.replay("c"))
+  }
+
+  @Test
+  fun `that old notifications are evicted`() {
+    val history = ProgressHistory(maxAgeMillis = 1000, clock = { now })
+    history.record("a", "1")
+    now = 500
+    history.record("a", "2")
+    now = 1200
+    assertEquals(listOf("2"), history.replay("a"))
+    now = 1600
+    assertEquals(emptyList(), history.replay("a"))
+    assertEquals(0, history.size())
+  }
+
+  @Test
+  fun `that the oldest notifications are evicted to stay within the memory bound`() {
+    // each notification of 10 characters is estimated at 20 bytes
+    val history = ProgressHistory(maxBytes = 50, clock = { now })
+    history.record("a", "0123456789")
+    history.record("b", "0123456789")
+    history.record("a", "abcdefghij")
+    assertEquals(listOf("abcdefghij"), history.replay("a"))
+    assertEquals(listOf("0123456789"), history.replay("b"))
+  }
+
+  @Test
+  fun `that each address keeps a bounded number of notifications`() {
+    val history = ProgressHistory(maxEntries = 2, clock = { now })
+    (1..5).forEach { history.record("a", it.toString()) }
+    history.record("b", "x")
+    assertEquals(listOf("4", "5"), history.replay("a"))
+    assertEquals(3, history.size())
+  }
+
+  @Test
+  fun `that a zero age disables the history`() {
+    val history = ProgressHistory(maxAgeMillis = 0, clock = { now })
+    history.record("a", "1")
+    assertEquals(emptyList(), history.replay("a"))
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.progress
+
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.never
+import com.nhaarman.mockito_kotlin.verify
+import io.vertx.core.AsyncResult
+import io.vertx.core.Handler
+import io.vertx.core.Vertx
+import io.vertx.core.eventbus.EventBus
+import io.vertx.core.eventbus.Message
+import io.vertx.core.json.Json
+import io.vertx.core.json.JsonObject
+import io.vertx.ext.auth.AbstractUser
+import io.vertx.ext.auth.AuthProvider
+import io.vertx.ext.auth.User
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import kotlin.test.assertEquals
+
+@RunWith(VertxUnitRunner::class)
+class ProgressTopicsTest {
+  private val vertx = Vertx.vertx()
+  private val topics = ProgressTopics(vertx.eventBus()) { it.principal().getString("name") }
+  private val alice = user("alice")
+  private val bob = user("bob")
+
+  @After
+  fun after(context: TestContext) {
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that nothing is published when nobody listens`() {
+    val eventBus = mock<EventBus>()
+    val unheard = ProgressTopics(eventBus)
+    unheard.publish(null, ProgressNotification().withInvocationId("1").withStep("Starting"))
+    verify(eventBus, never()).publish(any(), any())
+  }
+
+  @Test
+  fun `that the history is only recorded for the invocations it is kept for`() {
+    var now = 0L
+    val history = ProgressHistory(maxAgeMillis = 1000, clock = { now })
+    val recording = ProgressTopics(mock(), history = history, clock = { now })
+    recording.publish(null, ProgressNotification().withInvocationId("1").withStep("Starting"))
+    assertEquals(0, history.size())
+
+    recording.keepHistory(null, "2")
+    recording.publish(null, ProgressNotification().withInvocationId("2").withStep("Starting"))
+    assertEquals(1, history.size())
+
+    // each notification keeps the history for longer
+    now += 999
+    recording.publish(null, ProgressNotification().withInvocationId("2").withStep("Signing"))
+    now += 999
+    recording.publish(null, ProgressNotification().withInvocationId("2").withStep("Done"))
+    val steps = { history.replay(ProgressTopics.address(null, "2")).map { Json.decodeValue(it, ProgressNotification::class.java).step } }
+    assertEquals(listOf<String?>("Signing", "Done"), steps())
+
+    now += 1000
+    recording.publish(null, ProgressNotification().withInvocationId("2").withStep("Late"))
+    assertEquals(emptyList(), steps())
+  }
+
+  @Test
+  fun `that a subscriber only hears its own user's invocation`(context: TestContext) {
+    val async = context.async()
+    val consumer = topics.subscribe(alice, "1") {
+      val notification = Json.decodeValue(it, ProgressNotification::class.java)
+      context.assertEquals("alice's step", notification.step)
+      async.complete()
+    }
+    consumer.completionHandler {
+      topics.publish(bob, ProgressNotification().withInvocationId("1").withStep("bob's step"))
+      topics.publish(alice, ProgressNotification().withInvocationId("2").withStep("other step"))
+      topics.publish(alice, ProgressNotification().withInvocationId("1").withStep("alice's step"))
+    }
+  }
+
+  @Test
+  fun `that publishing stops once the last subscriber leaves`() {
+    val eventBus = mock<EventBus> {
+      on { consumer(any<String>(), any<Handler<Message<String>>>()) }.thenAnswer {
+        vertx.eventBus().consumer<String>(it.getArgument<String>(0))
+      }
+    }
+    val watched = ProgressTopics(eventBus)
+    val consumer = watched.subscribe(null, null) {}
+    val heard = ProgressNotification().withStep("heard")
+    watched.publish(null, heard)
+    verify(eventBus).publish(ProgressTopics.TOPIC, Json.encode(heard))
+
+    watched.unsubscribe(consumer)
+    val unheard = ProgressNotification().withStep("unheard")
+    watched.publish(null, unheard)
+    verify(eventBus, never()).publish(ProgressTopics.TOPIC, Json.encode(unheard))
+  }
+
+  @Test
+  fun `that a late subscriber hears the history of its invocation first`(context: TestContext) {
+    val async = context.async()
+    topics.keepHistory(alice, "1")
+    topics.publish(alice, ProgressNotification().withInvocationId("1").withStep("Starting"))
+    topics.publish(alice, ProgressNotification().withInvocationId("1").withStep("Signing"))
+    val steps = mutableListOf<String?>()
+    vertx.runOnContext {
+      topics.subscribe(alice, "1") {
+        steps.add(Json.decodeValue(it, ProgressNotification::class.java).step)
+        if (steps.size == 3) {
+          context.assertEquals(listOf<String?>("Starting", "Signing", "Done"), steps)
+          async.complete()
+        }
+      }
+      topics.publish(alice, ProgressNotification().withInvocationId("1").withStep("Done"))
+    }
+  }
+
+  private fun user(name: String): User = object : AbstractUser() {
+    override fun principal() = JsonObject().put("name", name)
+    override fun setAuthProvider(authProvider: AuthProvider?) {}
+    override fun doIsPermitted(permission: String?, resultHandler: Handler<AsyncResult<Boolean>>?) {}
+  }
+}
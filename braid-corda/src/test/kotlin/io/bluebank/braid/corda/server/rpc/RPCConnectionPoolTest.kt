@@ -0,0 +1,189 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.server.rpc
+
+import io.vertx.ext.web.handler.impl.HttpStatusException
+import net.corda.client.rpc.RPCException
+import net.corda.core.messaging.CordaRPCOps
+import org.junit.Test
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Proxy
+import java.time.Instant
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+/**
+ * a [CordaRPCOps] whose every call is answered by [answer]
+ */
+fun fakeRPCOps(answer: () -> Any?): CordaRPCOps {
+  return Proxy.newProxyInstance(
+    CordaRPCOps::class.java.classLoader,
+    arrayOf(CordaRPCOps::class.java),
+    InvocationHandler { _, _, _ -> answer() }
+  ) as CordaRPCOps
+}
+
+class RPCConnectionPoolTest {
+  @Test
+  fun `that calls go to the connection with the fewest calls in flight`() {
+    val connections = AtomicInteger()
+    val blocked = CountDownLatch(1)
+    val release = CountDownLatch(1)
+    val pool = RPCConnectionPool(2) {
+      val connection = connections.getAndIncrement()
+      PooledRPCConnection(fakeRPCOps {
+        if (connection == 0) {
+          blocked.countDown()
+          release.await()
+        }
+        Instant.ofEpochMilli(connection.toLong())
+      })
+    }
+
+    val busy = thread { pool.ops.currentNodeTime() }
+    blocked.await()
+    repeat(3) { assertEquals(Instant.ofEpochMilli(1), pool.ops.currentNodeTime()) }
+    assertEquals(listOf(1, 0), pool.metrics().map { it.inFlight })
+
+    release.countDown()
+    busy.join()
+    val metrics = pool.metrics()
+    assertEquals(listOf(0, 0), metrics.map { it.inFlight })
+    assertEquals(listOf(1L, 3L), metrics.map { it.calls })
+    assertEquals(listOf(true, true), metrics.map { it.connected })
+  }
+
+  @Test
+  fun `that connections are only made when used`() {
+    val pool = RPCConnectionPool(3) { PooledRPCConnection(fakeRPCOps { Instant.EPOCH }) }
+    pool.ops.currentNodeTime()
+    assertEquals(1, pool.metrics().count { it.connected })
+  }
+
+  @Test
+  fun `that the exceptions of calls are rethrown as is`() {
+    val pool = RPCConnectionPool(1) {
+      PooledRPCConnection(fakeRPCOps { throw IllegalStateException("node says no") })
+    }
+    assertFailsWith<IllegalStateException> { pool.ops.currentNodeTime() }
+    assertEquals(1L, pool.metrics().single().calls)
+    // not a connection failure, so the connection is kept
+    assertEquals(true, pool.metrics().single().connected)
+  }
+
+  @Test
+  fun `that the backoff doubles up to its maximum`() {
+    val backoff = RPCBackoff(initialMillis = 100, maxMillis = 1_000)
+    assertEquals(listOf(100L, 200L, 400L, 800L, 1_000L, 1_000L), (1..6).map { backoff.delayMillis(it) })
+    assertEquals(1_000L, backoff.delayMillis(100))
+  }
+
+  @Test
+  fun `that a connection to a node that restarts fails fast and then reconnects`() {
+    val node = StandInNode()
+    var now = 0L
+    val pool = RPCConnectionPool(
+      1,
+      RPCBackoff(initialMillis = 200, maxMillis = 200),
+      clock = { now },
+      connect = node::connect
+    )
+    assertEquals(Instant.ofEpochMilli(1), pool.ops.currentNodeTime())
+
+    node.kill()
+    // the call that finds the node gone fails as the node's connection does
+    assertFailsWith<RPCException> { pool.ops.currentNodeTime() }
+    assertEquals(1, node.closed)
+    // and then calls fail fast, without trying to connect, until the backoff has passed
+    val fastFailure = assertFailsWith<HttpStatusException> { pool.ops.currentNodeTime() }
+    assertEquals(503, fastFailure.statusCode)
+    assertEquals(1, node.connects)
+    assertEquals(200L, pool.metrics().single().retryInMillis)
+
+    node.restart()
+    now += 199
+    assertFailsWith<HttpStatusException> { pool.ops.currentNodeTime() }
+    assertEquals(1, node.connects)
+    now += 1
+    assertEquals(Instant.ofEpochMilli(2), pool.ops.currentNodeTime())
+    val metrics = pool.metrics().single()
+    assertEquals(0, metrics.failures)
+    assertEquals(true, metrics.connected)
+  }
+
+  @Test
+  fun `that calls wait for a first connection that is already being made`() {
+    val connecting = CountDownLatch(1)
+    val release = CountDownLatch(1)
+    val connects = AtomicInteger()
+    val pool = RPCConnectionPool(1) {
+      connects.incrementAndGet()
+      connecting.countDown()
+      release.await()
+      PooledRPCConnection(fakeRPCOps { Instant.EPOCH })
+    }
+
+    val first = thread { pool.ops.currentNodeTime() }
+    connecting.await()
+    var second: Instant? = null
+    val waiting = thread { second = pool.ops.currentNodeTime() }
+    // only release the connection once the second call is waiting for it
+    while (pool.waitingToConnect == 0) Thread.sleep(1)
+    release.countDown()
+    first.join()
+    waiting.join()
+    assertEquals(Instant.EPOCH, second)
+    assertEquals(1, connects.get())
+    assertEquals(2L, pool.metrics().single().calls)
+  }
+
+  /**
+   * stands in for a node that can be killed and restarted: its connections fail once it's
+   * killed, and connecting fails until it's restarted
+   */
+  private class StandInNode {
+    @Volatile
+    private var generation = 1
+    @Volatile
+    private var running = true
+    @Volatile
+    var connects = 0
+    @Volatile
+    var closed = 0
+
+    fun kill() {
+      running = false
+    }
+
+    fun restart() {
+      generation++
+      running = true
+    }
+
+    fun connect(): PooledRPCConnection {
+      connects++
+      if (!running) throw RPCException("Cannot connect to server(s). Tried with all available servers.")
+      val connectedTo = generation
+      return PooledRPCConnection(fakeRPCOps {
+        if (!running || connectedTo != generation) throw RPCException("Connection failure detected.")
+        Instant.ofEpochMilli(connectedTo.toLong())
+      }) { closed++ }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services
+
+import net.corda.core.identity.AbstractParty
+import net.corda.core.identity.CordaX500Name
+import net.corda.core.identity.Party
+import net.corda.core.messaging.DataFeed
+import net.corda.core.node.NodeInfo
+import net.corda.core.node.services.NetworkMapCache
+import net.corda.core.utilities.NetworkHostAndPort
+import net.corda.testing.core.DUMMY_NOTARY_NAME
+import net.corda.testing.core.TestIdentity
+import org.junit.Test
+import rx.subjects.PublishSubject
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class NetworkMapReplicaTest {
+  private val partyA = TestIdentity(CordaX500Name("PartyA", "London", "GB"))
+  private val partyB = TestIdentity(CordaX500Name("PartyB", "New York", "US"))
+  private val notary = TestIdentity(DUMMY_NOTARY_NAME)
+  private val nodeA = node(partyA, 10000)
+  private val nodeB = node(partyB, 10001)
+  private val source = FakeNetworkMap(listOf(nodeA), listOf(notary.party))
+  private val replica = NetworkMapReplica(source)
+
+  @Test
+  fun `that reads are served from the replica after it is seeded`() {
+    repeat(10) {
+      assertEquals(nodeA, replica.getNodeByAddress(NetworkHostAndPort("localhost", 10000)))
+      assertEquals(nodeA, replica.getNodeByLegalName(partyA.name))
+      assertEquals(nodeA, replica.nodeInfoFromParty(partyA.party))
+      assertEquals(partyA.party, replica.wellKnownPartyFromX500Name(partyA.name))
+      assertEquals(notary.party, replica.notaryPartyFromX500Name(DUMMY_NOTARY_NAME))
+      assertEquals(listOf(nodeA), replica.networkMapSnapshot())
+    }
+    assertEquals(1, source.tracked.get())
+    assertEquals(0, source.reads.get())
+  }
+
+  @Test
+  fun `that the replica follows the network map updates`() {
+    replica.networkMapSnapshot()
+    source.updates.onNext(NetworkMapCache.MapChange.Added(nodeB))
+    assertEquals(nodeB, replica.getNodeByLegalName(partyB.name))
+
+    val movedB = node(partyB, 10002)
+    source.updates.onNext(NetworkMapCache.MapChange.Modified(movedB, nodeB))
+    assertNull(replica.getNodeByAddress(NetworkHostAndPort("localhost", 10001)))
+    assertEquals(movedB, replica.getNodeByAddress(NetworkHostAndPort("localhost", 10002)))
+
+    source.updates.onNext(NetworkMapCache.MapChange.Removed(nodeA))
+    assertNull(replica.getNodeByLegalName(partyA.name))
+    assertEquals(listOf(movedB), replica.networkMapSnapshot())
+  }
+
+  @Test
+  fun `that the replica is seeded again after its feed fails`() {
+    replica.networkMapSnapshot()
+    source.updates.onError(RuntimeException("connection lost"))
+    source.updates = PublishSubject.create()
+    replica.networkMapSnapshot()
+    assertEquals(2, source.tracked.get())
+  }
+
+  private fun node(identity: TestIdentity, port: Int) =
+    NodeInfo(listOf(NetworkHostAndPort("localhost", port)), listOf(identity.identity), 4, 1)
+
+  private class FakeNetworkMap(
+    private val nodes: List<NodeInfo>,
+    private val notaries: List<Party>
+  ) : NetworkMapServiceAdapter {
+    val tracked = AtomicInteger()
+    val reads = AtomicInteger()
+    var updates = PublishSubject.create<NetworkMapCache.MapChange>()
+
+    override fun track(): DataFeed<List<NodeInfo>, NetworkMapCache.MapChange> {
+      tracked.incrementAndGet()
+      return DataFeed(nodes, updates)
+    }
+
+    override fun nodeInfo() = nodes.first()
+    override fun notaryIdentities() = notaries
+
+    override fun networkMapSnapshot(): List<NodeInfo> = read()
+    override fun wellKnownPartyFromX500Name(x500Name: CordaX500Name): Party? = read()
+    override fun nodeInfoFromParty(party: AbstractParty): NodeInfo? = read()
+    override fun notaryPartyFromX500Name(x500Name: CordaX500Name): Party? = read()
+    override fun getNodeByAddress(hostAndPort: NetworkHostAndPort): NodeInfo? = read()
+    override fun getNodeByLegalName(name: CordaX500Name): NodeInfo? = read()
+
+    private fun <T> read(): T {
+      reads.incrementAndGet()
+      throw UnsupportedOperationException("should be read from the replica")
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services.adapters
+
+import com.nhaarman.mockito_kotlin.argumentCaptor
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.times
+import com.nhaarman.mockito_kotlin.verify
+import net.corda.core.flows.FlowLogic
+import net.corda.core.node.AppServiceHub
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class GreetingFlow(val greeting: String, val name: String?, val times: Int) : FlowLogic<String>() {
+  constructor(name: String) : this("hello", name, 1)
+
+  override fun call() = "$greeting $name".repeat(times)
+}
+
+class AppServiceHubAdapterTest {
+  private val serviceHub = mock<AppServiceHub>()
+  private val adapter = AppServiceHubAdapter(serviceHub)
+
+  @Test
+  fun `that flows are constructed from the constructor that their arguments bind to`() {
+    adapter.startFlowDynamic(GreetingFlow::class.java, "hi", "fred", 2)
+    adapter.startFlowDynamic(GreetingFlow::class.java, "hey", null, 3)
+    adapter.startFlowDynamic(GreetingFlow::class.java, "bob")
+    adapter.startTrackedFlowDynamic(GreetingFlow::class.java, "hi", "jim", 1)
+
+    val flows = argumentCaptor<FlowLogic<*>>()
+    verify(serviceHub, times(3)).startFlow(flows.capture())
+    val tracked = argumentCaptor<FlowLogic<*>>()
+    verify(serviceHub).startTrackedFlow(tracked.capture())
+    assertEquals(
+      listOf("hi fredhi fred", "hey nullhey nullhey null", "hello bob", "hi jim"),
+      (flows.allValues + tracked.allValues).map { it.call() }
+    )
+  }
+
+  @Test
+  fun `that arguments that bind to no constructor are refused every time`() {
+    repeat(2) {
+      assertFailsWith<Exception> { adapter.startFlowDynamic(GreetingFlow::class.java, 1, 2, 3) }
+    }
+  }
+}
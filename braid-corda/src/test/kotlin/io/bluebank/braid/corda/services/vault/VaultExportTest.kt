@@ -0,0 +1,158 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services.vault
+
+import io.bluebank.braid.corda.serialisation.serializers.BraidCordaJacksonInit
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Vertx
+import io.vertx.core.buffer.Buffer
+import io.vertx.core.http.HttpClient
+import io.vertx.core.json.Json
+import io.vertx.core.json.JsonObject
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import io.vertx.ext.web.handler.BodyHandler
+import net.corda.core.contracts.ContractState
+import net.corda.core.contracts.StateAndRef
+import net.corda.core.contracts.StateRef
+import net.corda.core.contracts.TransactionState
+import net.corda.core.crypto.SecureHash
+import net.corda.core.identity.AbstractParty
+import net.corda.core.messaging.CordaRPCOps
+import net.corda.core.node.services.Vault
+import net.corda.core.node.services.vault.PageSpecification
+import net.corda.testing.core.DUMMY_NOTARY_NAME
+import net.corda.testing.core.TestIdentity
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Proxy
+import java.util.concurrent.CopyOnWriteArrayList
+
+data class ExportedState(val value: String) : ContractState {
+  override val participants: List<AbstractParty> = emptyList()
+}
+
+@RunWith(VertxUnitRunner::class)
+class VaultExportTest {
+
+  companion object {
+    private const val TOTAL = 25
+    private const val PAGE_SIZE = 10
+
+    init {
+      BraidCordaJacksonInit.init()
+    }
+  }
+
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private val notary = TestIdentity(DUMMY_NOTARY_NAME).party
+  private val requestedPages = CopyOnWriteArrayList<Int>()
+  private val vaultService = VaultService { vaultOps() }
+  private lateinit var client: HttpClient
+
+  @Before
+  fun before(context: TestContext) {
+    val router = Router.router(vertx)
+    router.route().handler(BodyHandler.create())
+    router.post("/vault/export").handler { vaultService.vaultExport(it) }
+    client = vertx.createHttpClient()
+    vertx.createHttpServer().requestHandler(router).listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that ndjson export streams every page`(context: TestContext) {
+    export("ndjson", context) { contentType, body ->
+      context.assertEquals("application/x-ndjson", contentType)
+      val lines = body.lines().filter { it.isNotEmpty() }
+      context.assertEquals(TOTAL, lines.size)
+      context.assertEquals(
+        (0 until TOTAL).map { "state $it" },
+        lines.map { JsonObject(it).getJsonObject("state").getJsonObject("data").getString("value") }
+      )
+      context.assertEquals(listOf(1, 2, 3), requestedPages.sorted())
+    }
+  }
+
+  @Test
+  fun `that csv export quotes the state json`(context: TestContext) {
+    export("csv", context) { contentType, body ->
+      context.assertEquals("text/csv", contentType)
+      val lines = body.split("\r\n").filter { it.isNotEmpty() }
+      context.assertEquals(TOTAL + 1, lines.size)
+      context.assertTrue(lines.first().startsWith("txhash,index,contractStateClassName"))
+      context.assertTrue(lines[1].endsWith(ExportFormat.csvField(Json.encode(ExportedState("state 0")))))
+    }
+  }
+
+  @Test
+  fun `that csv fields are escaped`() {
+    kotlin.test.assertEquals("plain", ExportFormat.csvField("plain"))
+    kotlin.test.assertEquals("\"a,b\"", ExportFormat.csvField("a,b"))
+    kotlin.test.assertEquals("\"say \"\"hi\"\"\"", ExportFormat.csvField("say \"hi\""))
+  }
+
+  private fun export(format: String, context: TestContext, verify: (String, String) -> Unit) {
+    val async = context.async()
+    val query = VaultQuery().withPageSpecification(PageSpecification(1, PAGE_SIZE))
+    client.post(port, "localhost", "/vault/export?format=$format") { response ->
+      context.assertEquals(200, response.statusCode())
+      val body = Buffer.buffer()
+      response.handler { body.appendBuffer(it) }
+      response.endHandler {
+        verify(response.getHeader("Content-Type"), body.toString())
+        async.complete()
+      }
+    }
+      .exceptionHandler { context.fail(it) }
+      .end(Json.encode(query))
+  }
+
+  private fun vaultOps(): CordaRPCOps {
+    return Proxy.newProxyInstance(
+      CordaRPCOps::class.java.classLoader,
+      arrayOf(CordaRPCOps::class.java),
+      InvocationHandler { _, method, args ->
+        when (method.name) {
+          "vaultQueryBy" -> page(args[1] as PageSpecification)
+          else -> throw UnsupportedOperationException(method.name)
+        }
+      }
+    ) as CordaRPCOps
+  }
+
+  private fun page(paging: PageSpecification): Vault.Page<ContractState> {
+    requestedPages.add(paging.pageNumber)
+    val from = (paging.pageNumber - 1) * paging.pageSize
+    val states = (from until Math.min(from + paging.pageSize, TOTAL)).map {
+      StateAndRef(
+        TransactionState(ExportedState("state $it"), "contract", notary),
+        StateRef(SecureHash.sha256("tx $it"), 0)
+      )
+    }
+    return Vault.Page(states, emptyList(), TOTAL.toLong(), Vault.StateStatus.UNCONSUMED, emptyList())
+  }
+}
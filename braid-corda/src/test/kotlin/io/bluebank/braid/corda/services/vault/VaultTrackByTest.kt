@@ -0,0 +1,153 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services.vault
+
+import io.bluebank.braid.corda.serialisation.serializers.BraidCordaJacksonInit
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpClient
+import io.vertx.core.http.HttpClientResponse
+import io.vertx.core.json.Json
+import io.vertx.core.json.JsonObject
+import io.vertx.core.parsetools.RecordParser
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import io.vertx.ext.web.handler.BodyHandler
+import net.corda.core.contracts.ContractState
+import net.corda.core.messaging.CordaRPCOps
+import net.corda.core.messaging.DataFeed
+import net.corda.core.node.services.Vault
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import rx.subjects.PublishSubject
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Proxy
+import java.util.concurrent.CopyOnWriteArrayList
+import kotlin.concurrent.thread
+
+@RunWith(VertxUnitRunner::class)
+class VaultTrackByTest {
+
+  companion object {
+    init {
+      BraidCordaJacksonInit.init()
+    }
+  }
+
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private val snapshot = Vault.Page<ContractState>(
+    emptyList(),
+    emptyList(),
+    0,
+    Vault.StateStatus.UNCONSUMED,
+    emptyList()
+  )
+  private val updates = PublishSubject.create<Vault.Update<ContractState>>()
+  private val vaultService = VaultService { vaultOps() }
+  private lateinit var client: HttpClient
+
+  @Before
+  fun before(context: TestContext) {
+    val router = Router.router(vertx)
+    router.route().handler(BodyHandler.create())
+    router.post("/vault/track").handler { vaultService.vaultTrackBy(it) }
+    client = vertx.createHttpClient()
+    vertx.createHttpServer().requestHandler(router).listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that the snapshot and updates are streamed until the feed fails`(context: TestContext) {
+    val async = context.async()
+    val lines = CopyOnWriteArrayList<JsonObject>()
+    track(context) { response ->
+      context.assertEquals("application/x-ndjson", response.getHeader("Content-Type"))
+      response.handler(RecordParser.newDelimited("\n") { line ->
+        lines.add(JsonObject(line.toString()))
+        when (lines.size) {
+          1 -> whenSubscribed { updates.onNext(Vault.Update(emptySet(), emptySet())) }
+          2 -> updates.onError(RuntimeException("node went away"))
+        }
+      })
+      response.endHandler {
+        context.assertEquals(3, lines.size)
+        context.assertTrue(lines[0].containsKey("states"))
+        context.assertTrue(lines[1].containsKey("consumed"))
+        context.assertEquals("node went away", lines[2].getString("error"))
+        async.complete()
+      }
+    }
+  }
+
+  @Test
+  fun `that the feed is unsubscribed from when the client disconnects`(context: TestContext) {
+    val async = context.async()
+    track(context) { response ->
+      response.exceptionHandler { } // the connection is closed on purpose
+      response.handler(RecordParser.newDelimited("\n") {
+        whenSubscribed {
+          response.request().connection().close()
+          thread {
+            while (updates.hasObservers()) Thread.sleep(1)
+            async.complete()
+          }
+        }
+      })
+    }
+  }
+
+  private fun track(context: TestContext, handler: (HttpClientResponse) -> Unit) {
+    client.post(port, "localhost", "/vault/track") { response ->
+      context.assertEquals(200, response.statusCode())
+      handler(response)
+    }
+      .exceptionHandler { context.fail(it) }
+      .end(Json.encode(VaultQuery()))
+  }
+
+  /**
+   * runs [action] once the service is subscribed to the node's feed, which happens off the
+   * event loop after the snapshot has been taken
+   */
+  private fun whenSubscribed(action: () -> Unit) {
+    thread {
+      while (!updates.hasObservers()) Thread.sleep(1)
+      action()
+    }
+  }
+
+  private fun vaultOps(): CordaRPCOps {
+    return Proxy.newProxyInstance(
+      CordaRPCOps::class.java.classLoader,
+      arrayOf(CordaRPCOps::class.java),
+      InvocationHandler { _, method, _ ->
+        when (method.name) {
+          "vaultTrackBy" -> DataFeed(snapshot, updates)
+          else -> throw UnsupportedOperationException(method.name)
+        }
+      }
+    ) as CordaRPCOps
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.corda.services.vault
+
+import net.corda.core.contracts.ContractState
+import net.corda.core.messaging.DataFeed
+import net.corda.core.node.services.Vault
+import org.junit.Test
+import rx.observers.TestSubscriber
+import rx.subjects.PublishSubject
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class VaultTrackerTest {
+  private val snapshot = Vault.Page<ContractState>(
+    emptyList(),
+    emptyList(),
+    0,
+    Vault.StateStatus.UNCONSUMED,
+    emptyList()
+  )
+  private val updates = PublishSubject.create<Vault.Update<ContractState>>()
+  private val tracker = VaultTracker { DataFeed(snapshot, updates) }
+
+  @Test
+  fun `that the snapshot is followed by the updates`() {
+    val subscriber = TestSubscriber<Any>()
+    tracker.vaultTrackBy(VaultQuery()).subscribe(subscriber)
+    val update = Vault.Update<ContractState>(emptySet(), emptySet())
+    updates.onNext(update)
+    subscriber.assertValues(snapshot, update)
+  }
+
+  @Test
+  fun `that unsubscribing releases the feed`() {
+    val subscription = tracker.vaultTrackBy(VaultQuery()).subscribe()
+    assertTrue(updates.hasObservers())
+    subscription.unsubscribe()
+    assertFalse(updates.hasObservers())
+  }
+
+  @Test
+  fun `that the feed is released when the client leaves during the snapshot`() {
+    val received = mutableListOf<Any>()
+    val subscriber = TestSubscriber<Any>()
+    tracker.vaultTrackBy(VaultQuery())
+      .doOnNext { received.add(it) }
+      .take(1)
+      .subscribe(subscriber)
+    assertEquals(listOf<Any>(snapshot), received)
+    assertFalse(updates.hasObservers())
+  }
+}
@@ -26,4 +26,12 @@ annotation class ServiceDescription(val name: String, val description: String)
 annotation class MethodDescription(
   val returnType: KClass<*> = Any::class,
   val description: String = ""
-)
\ No newline at end of file
+)
+
+/**
+ * Declares that a function never blocks its calling thread, so that it can be invoked
+ * directly on a Vert.x event loop rather than being offloaded to a worker thread
+ */
+@Retention(AnnotationRetention.RUNTIME)
+@Target(AnnotationTarget.FUNCTION)
+annotation class NonBlocking
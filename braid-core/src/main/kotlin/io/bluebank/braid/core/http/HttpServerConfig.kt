@@ -30,6 +30,14 @@ class HttpServerConfig {
     const val CERT_PATH = "server.tls.cert.path"
     const val CERT_SECRET = "server.tls.cert.secret"
     const val CERT_TYPE = "server.tls.cert.type"
+    const val HTTP2_ENABLED = "server.http2.enabled"
+    const val HTTP2_MAX_CONCURRENT_STREAMS = "server.http2.max.concurrent.streams"
+    const val HTTP2_INITIAL_WINDOW_SIZE = "server.http2.initial.window.size"
+    const val HTTP2_CONNECTION_WINDOW_SIZE = "server.http2.connection.window.size"
+
+    const val DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 100L
+    const val DEFAULT_HTTP2_INITIAL_WINDOW_SIZE = 65535
+    const val DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE = 1024 * 1024
 
     @JvmStatic
     fun defaultServerOptions(): HttpServerOptions {
@@ -66,6 +74,22 @@ class HttpServerConfig {
             log.warn("Unknown key and certificate options: ${certOptions.javaClass.name}. TLS is turned off")
           }
         }
+        if (BraidParameterLookup.getParameter(HTTP2_ENABLED, "false").toBoolean()) {
+          withHttp2(
+            BraidParameterLookup.getParameter(
+              HTTP2_MAX_CONCURRENT_STREAMS,
+              DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS.toString()
+            ).toLong(),
+            BraidParameterLookup.getParameter(
+              HTTP2_INITIAL_WINDOW_SIZE,
+              DEFAULT_HTTP2_INITIAL_WINDOW_SIZE.toString()
+            ).toInt(),
+            BraidParameterLookup.getParameter(
+              HTTP2_CONNECTION_WINDOW_SIZE,
+              DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE.toString()
+            ).toInt()
+          )
+        }
       }
     }
 
@@ -15,9 +15,47 @@
  */
 package io.bluebank.braid.core.http
 
+import io.vertx.core.http.Http2Settings
 import io.vertx.core.http.HttpServerOptions
+import io.vertx.core.http.HttpVersion
 
 fun HttpServerOptions.withCompatibleWebsockets(): HttpServerOptions {
   this.websocketSubProtocols = "undefined"
   return this
+}
+
+/**
+ * Switches on gzip/deflate response compression (negotiated via `Accept-Encoding`)
+ * and per-message websocket compression, both at the given [level] (1-9)
+ */
+fun HttpServerOptions.withCompression(level: Int): HttpServerOptions {
+  require(level in 1..9) { "compression level must be between 1 and 9 but was $level" }
+  this.isCompressionSupported = true
+  this.compressionLevel = level
+  this.setPerMessageWebsocketCompressionSupported(true)
+  this.setWebsocketCompressionLevel(level)
+  return this
+}
+
+/**
+ * Opts in to HTTP/2. Over TLS the protocol is negotiated with ALPN, falling back to
+ * HTTP/1.1 for clients that don't offer h2. Plain-text servers accept h2c, either by
+ * prior knowledge or by upgrade from HTTP/1.1.
+ *
+ * @param maxConcurrentStreams - the maximum number of concurrent streams per connection
+ * @param initialWindowSize - the flow-control window of each stream, in bytes
+ * @param connectionWindowSize - the flow-control window of the whole connection, in bytes
+ */
+fun HttpServerOptions.withHttp2(
+  maxConcurrentStreams: Long = HttpServerConfig.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS,
+  initialWindowSize: Int = HttpServerConfig.DEFAULT_HTTP2_INITIAL_WINDOW_SIZE,
+  connectionWindowSize: Int = HttpServerConfig.DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE
+): HttpServerOptions {
+  this.isUseAlpn = this.isSsl
+  this.alpnVersions = listOf(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1)
+  this.initialSettings = Http2Settings()
+    .setMaxConcurrentStreams(maxConcurrentStreams)
+    .setInitialWindowSize(initialWindowSize)
+  this.http2ConnectionWindowSize = connectionWindowSize
+  return this
 }
\ No newline at end of file
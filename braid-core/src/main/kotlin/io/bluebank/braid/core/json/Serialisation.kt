@@ -15,19 +15,54 @@
  */
 package io.bluebank.braid.core.json
 
+import com.fasterxml.jackson.databind.Module
+import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.SerializationFeature
 import com.fasterxml.jackson.databind.deser.std.NumberDeserializers
 import com.fasterxml.jackson.databind.module.SimpleModule
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule
 import com.fasterxml.jackson.module.kotlin.registerKotlinModule
 import io.bluebank.braid.core.jsonrpc.JsonRPCRequest
 import io.bluebank.braid.core.jsonrpc.JsonRPCResultResponse
+import io.bluebank.braid.core.utils.BraidParameterLookup
 import io.vertx.core.json.Json
 import java.math.BigDecimal
 
 object BraidJacksonInit {
+  /**
+   * name of the parameter, see [BraidParameterLookup], that opts in to serializers and
+   * deserializers generated as bytecode rather than driven by reflection
+   */
+  const val AFTERBURNER_ENABLED = "jackson.afterburner"
+
+  val isAfterburnerEnabled =
+    BraidParameterLookup.getParameter(AFTERBURNER_ENABLED, "false").toBoolean()
+
   init {
-    val modules = listOf(
+    listOf(Json.mapper, Json.prettyMapper).forEach { configure(it) }
+  }
+
+  fun init() {
+    // automatically init during class load
+  }
+
+  /**
+   * registers the braid modules, with afterburner if [afterburner], on [mapper]
+   */
+  internal fun configure(
+    mapper: ObjectMapper,
+    afterburner: Boolean = isAfterburnerEnabled
+  ): ObjectMapper {
+    mapper.registerKotlinModule()
+    modules(afterburner).forEach { module ->
+      mapper.registerModule(module)
+    }
+    return mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+  }
+
+  private fun modules(afterburner: Boolean): List<Module> {
+    return listOf<Module>(
       JavaTimeModule(),
       SimpleModule()
         .addSerializer(JsonRPCRequest::class.java, JsonRPCReqestSerializer())
@@ -43,20 +78,6 @@ object BraidJacksonInit {
           BigDecimal::class.java,
           NumberDeserializers.BigDecimalDeserializer()
         )
-    )
-
-    listOf(Json.mapper, Json.prettyMapper).forEach { mapper ->
-      mapper.registerKotlinModule()
-      modules.forEach { module ->
-        mapper.registerModule(module)
-      }
-    }
-
-    Json.mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
-    Json.prettyMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
-  }
-
-  fun init() {
-    // automatically init during class load
+    ) + listOfNotNull(if (afterburner) AfterburnerModule() else null)
   }
 }
@@ -15,6 +15,8 @@
  */
 package io.bluebank.braid.core.jsonrpc
 
+import com.fasterxml.jackson.annotation.JsonInclude
+
 class JsonRPCException(val response: JsonRPCErrorResponse) : Exception() {
   @Throws(JsonRPCException::class)
   fun raise(): Nothing {
@@ -22,7 +24,11 @@ class JsonRPCException(val response: JsonRPCErrorResponse) : Exception() {
   }
 }
 
-class JsonRPCError(val code: Int, val message: String) {
+class JsonRPCError(
+  val code: Int,
+  val message: String,
+  @JsonInclude(JsonInclude.Include.NON_NULL) val data: Any? = null
+) {
   companion object {
     const val PARSE_ERROR = -32700
     const val INVALID_REQUEST = -32600
@@ -30,6 +36,7 @@ class JsonRPCError(val code: Int, val message: String) {
     const val INVALID_PARAMS = -32602
     const val INTERNAL_ERROR = -32603
     const val BASE_SERVER_ERROR = -32000 // to -32099
+    const val RATE_LIMITED = BASE_SERVER_ERROR - 29
   }
 }
 
@@ -73,6 +80,16 @@ data class JsonRPCErrorResponse(
     fun invalidParams(id: Any?, message: String) =
       JsonRPCErrorResponse(id = id, message = message, code = JsonRPCError.INVALID_PARAMS)
 
+    fun rateLimited(id: Any?, retryAfterSeconds: Long) =
+      JsonRPCErrorResponse(
+        JsonRPCError(
+          JsonRPCError.RATE_LIMITED,
+          "rate limit exceeded - retry after $retryAfterSeconds seconds",
+          mapOf("retryAfter" to retryAfterSeconds)
+        ),
+        id = id
+      )
+
     fun serverError(id: Any?, message: String?, offset: Int = 0) =
       JsonRPCErrorResponse(
         id = id,
@@ -19,6 +19,7 @@ import io.bluebank.braid.core.jsonrpc.JsonRPCErrorResponse.Companion.invalidRequ
 import io.bluebank.braid.core.jsonrpc.JsonRPCErrorResponse.Companion.serverError
 import io.bluebank.braid.core.jsonrpc.JsonRPCErrorResponse.Companion.throwInvalidRequest
 import io.bluebank.braid.core.logging.loggerFor
+import io.bluebank.braid.core.ratelimit.RateLimiter
 import io.bluebank.braid.core.service.MethodDoesNotExist
 import io.bluebank.braid.core.service.ServiceExecutor
 import io.bluebank.braid.core.socket.Socket
@@ -26,11 +27,16 @@ import io.bluebank.braid.core.socket.SocketListener
 import io.vertx.core.AsyncResult
 import io.vertx.core.Handler
 import io.vertx.core.Vertx
+import io.vertx.ext.auth.User
 import io.vertx.rx.java.RxHelper
 import rx.Subscription
 
-class JsonRPCMounter(private val executor: ServiceExecutor, vertx: Vertx) :
-  SocketListener<JsonRPCRequest, JsonRPCResponse> {
+class JsonRPCMounter(
+  private val executor: ServiceExecutor,
+  vertx: Vertx,
+  private val rateLimiter: RateLimiter? = null,
+  private val userName: (User) -> String? = RateLimiter.Companion::userNameOf
+) : SocketListener<JsonRPCRequest, JsonRPCResponse> {
 
   companion object {
     private val log = loggerFor<JsonRPCMounter>()
@@ -75,6 +81,7 @@ class JsonRPCMounter(private val executor: ServiceExecutor, vertx: Vertx) :
         if (request.isStreamCancelRequest()) {
           stopStream(request)
         } else {
+          checkRateLimit(request)
           if (activeSubscriptions.containsKey(request.id)) {
             val err = invalidRequest(
               request.id,
@@ -93,7 +100,12 @@ class JsonRPCMounter(private val executor: ServiceExecutor, vertx: Vertx) :
           activeSubscriptions[request.id] = subscription
         }
       } catch (err: JsonRPCException) {
-        log.error("failed to handle request $request", err)
+        if (err.response.error.code == JsonRPCError.RATE_LIMITED) {
+          // an expected refusal under load - not worth a stack trace
+          log.debug("rejected request {}: {}", request, err.response.error.message)
+        } else {
+          log.error("failed to handle request $request", err)
+        }
         err.response.send()
       }
     }
@@ -179,6 +191,14 @@ class JsonRPCMounter(private val executor: ServiceExecutor, vertx: Vertx) :
     }
   }
 
+  private fun checkRateLimit(request: JsonRPCRequest) {
+    val limiter = rateLimiter ?: return
+    val retryAfterSeconds = limiter.tryAcquire(socket.user()?.let(userName), request.method)
+    if (retryAfterSeconds > 0) {
+      throw JsonRPCErrorResponse.rateLimited(request.id, retryAfterSeconds).asException()
+    }
+  }
+
   private fun checkVersion(request: JsonRPCRequest) {
     val message = "braid version must be at least 2.0"
     try {
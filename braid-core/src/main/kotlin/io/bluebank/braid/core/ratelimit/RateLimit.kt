@@ -0,0 +1,36 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.ratelimit
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * A token bucket of [capacity] tokens that refills at [permitsPerSecond]
+ *
+ * @param permitsPerSecond - the sustained rate of calls allowed
+ * @param capacity - the number of calls that may burst above the sustained rate
+ */
+data class RateLimit(
+  val permitsPerSecond: Double,
+  val capacity: Long = Math.max(1L, Math.ceil(permitsPerSecond).toLong())
+) {
+  init {
+    require(permitsPerSecond > 0) { "permitsPerSecond must be positive but was $permitsPerSecond" }
+    require(capacity > 0) { "capacity must be positive but was $capacity" }
+  }
+
+  internal val intervalNanos: Long get() = (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond).toLong()
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.ratelimit
+
+import io.vertx.ext.auth.User
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Thrown when a call is refused by a [RateLimiter]
+ */
+class RateLimitExceededException(val retryAfterSeconds: Long) :
+  RuntimeException("rate limit exceeded - retry after $retryAfterSeconds seconds")
+
+/**
+ * A set of [TokenBucket]s, one per caller and operation, all sharing the same [limit]
+ *
+ * Once more than [maxIdleBuckets] buckets exist, those that have refilled completely are
+ * discarded, as they are indistinguishable from new buckets. They are looked for at most once
+ * in the time it takes a bucket to refill, rather than on every call.
+ */
+class RateLimiter(
+  private val limit: RateLimit,
+  private val maxIdleBuckets: Int = DEFAULT_MAX_IDLE_BUCKETS,
+  private val clock: () -> Long = System::nanoTime
+) {
+
+  companion object {
+    const val DEFAULT_MAX_IDLE_BUCKETS = 10_000
+    const val ANONYMOUS = "anonymous"
+
+    /**
+     * the user name in the principal of a JWT or basic-auth [User]
+     */
+    fun userNameOf(user: User): String? {
+      val principal = user.principal()
+      return principal.getString("user") ?: principal.getString("username")
+    }
+  }
+
+  private val buckets = ConcurrentHashMap<Pair<String, String>, TokenBucket>()
+  private val sweepIntervalNanos =
+    Math.max(limit.capacity * limit.intervalNanos, TimeUnit.SECONDS.toNanos(1))
+  private val lastSweep = AtomicLong(clock())
+
+  internal val bucketCount: Int get() = buckets.size
+
+  /**
+   * take a token from the bucket of [caller] for [operation]
+   * @return zero if the call is permitted, otherwise the seconds until the caller may retry
+   */
+  fun tryAcquire(caller: String?, operation: String): Long {
+    sweep()
+    val key = (caller ?: ANONYMOUS) to operation
+    val waitNanos = buckets.computeIfAbsent(key) { TokenBucket(limit, clock) }.tryAcquire()
+    return when (waitNanos) {
+      0L -> 0L
+      else -> Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1))
+    }
+  }
+
+  private fun sweep() {
+    if (buckets.size <= maxIdleBuckets) return
+    val now = clock()
+    val last = lastSweep.get()
+    // one caller sweeps per interval, the others carry on
+    if (now - last < sweepIntervalNanos || !lastSweep.compareAndSet(last, now)) return
+    buckets.values.removeIf { it.isIdle }
+  }
+
+  /**
+   * @throws RateLimitExceededException if the call is refused
+   */
+  fun acquire(caller: String?, operation: String) {
+    val retryAfterSeconds = tryAcquire(caller, operation)
+    if (retryAfterSeconds > 0) throw RateLimitExceededException(retryAfterSeconds)
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.ratelimit
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A lock-free token bucket.
+ *
+ * Rather than counting tokens, the bucket tracks the theoretical arrival time of the next
+ * call (the generic cell rate algorithm): each permitted call pushes it forward by one
+ * refill interval, and a call is refused while it is more than [RateLimit.capacity]
+ * intervals ahead of now. This is equivalent to a token bucket but needs only a single
+ * compare-and-set per call.
+ */
+class TokenBucket(limit: RateLimit, private val clock: () -> Long = System::nanoTime) {
+
+  private val interval = limit.intervalNanos
+  private val burst = interval * limit.capacity
+  private val theoreticalArrival = AtomicLong(clock())
+
+  /**
+   * take a token if one is available
+   * @return zero if the call is permitted, otherwise the nanoseconds until a token is available
+   */
+  fun tryAcquire(): Long {
+    while (true) {
+      val now = clock()
+      val current = theoreticalArrival.get()
+      val next = Math.max(current, now) + interval
+      val waitNanos = next - now - burst
+      if (waitNanos > 0) return waitNanos
+      if (theoreticalArrival.compareAndSet(current, next)) return 0
+    }
+  }
+
+  /**
+   * true if the bucket is full, and therefore indistinguishable from a new bucket
+   */
+  val isIdle: Boolean get() = theoreticalArrival.get() <= clock()
+}
@@ -32,18 +32,55 @@ data class ClassFromParametersBuilder(
   companion object {
     private val logger = loggerFor<ClassFromParametersBuilder>()
 
+    /**
+     * acquires the class named [className], with a field for each of [parameters].
+     * If [prebuiltClassLoader] already has a matching class, for example one generated into
+     * a cordapp jar at build time by the braid gradle plugin, then that is used as is;
+     * otherwise the class is built and injected into [classLoader] if not already there
+     */
     @JvmStatic
+    @JvmOverloads
     fun acquireClass(
       parameters: Array<Parameter>,
       classLoader: ClassLoader,
-      className: String
+      className: String,
+      prebuiltClassLoader: ClassLoader? = null
     ): Class<*> {
+      val prebuilt = prebuiltClassLoader?.loadPrebuilt(className, parameters)
+      if (prebuilt != null) {
+        logger.debug("using prebuilt payload type $className")
+        if (!SynthesisOptions.strategyUsesAnnotations) {
+          SyntheticModelConverter.registerClass(className, parameters.toList())
+        }
+        return prebuilt
+      }
       return classLoader.lazyAcquire(className) {
         ClassFromParametersBuilder(parameters.toList(), className)
           .buildAndInject(classLoader)
       }
     }
 
+    /**
+     * @return the class named [className] if it can be loaded and has exactly a field for
+     * each of [parameters], or null, for example if it was built from an older version of
+     * the constructor
+     */
+    private fun ClassLoader.loadPrebuilt(className: String, parameters: Array<Parameter>): Class<*>? {
+      val clazz = try {
+        loadClass(className)
+      } catch (err: ClassNotFoundException) {
+        return null
+      }
+      val fields = clazz.fields.associateBy { it.name }
+      val matches = fields.size == parameters.size && parameters.all {
+        fields[it.name]?.genericType == it.parameterizedType
+      }
+      if (!matches) {
+        logger.warn("prebuilt payload type $className does not match its constructor and will be rebuilt")
+      }
+      return clazz.takeIf { matches }
+    }
+
     /**
      * attempts to load the class - if it fails builds the type, injects it
      * @return the class matching [className]
@@ -59,7 +96,7 @@ data class ClassFromParametersBuilder(
     /**
      * access to the [ClassLoader.defineClass] method - used to deploy the class bytecode
      */
-    private val defineClassMethod: Method by lazy {
+    internal val defineClassMethod: Method by lazy {
       val cls = Class.forName("java.lang.ClassLoader")
       cls.getDeclaredMethod(
         "defineClass",
@@ -98,8 +135,9 @@ data class ClassFromParametersBuilder(
 
   private fun ClassLoader.inject(bytes: ByteArray): Class<*> {
     assert(className.isNotBlank()) { "class name not set" }
-    val result = ClassLogger.readBytes(bytes)
-    logger.info("$className\r\n$result")
+    if (logger.isDebugEnabled) {
+      logger.debug("$className\r\n${ClassLogger.readBytes(bytes)}")
+    }
 
     return try {
       loadClass(className).also {
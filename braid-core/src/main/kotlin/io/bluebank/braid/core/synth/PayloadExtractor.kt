@@ -0,0 +1,116 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.synth
+
+import io.bluebank.braid.core.logging.loggerFor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import java.util.function.Function
+import org.objectweb.asm.Type as AsmType
+
+/**
+ * Builds, for a payload class, a class that copies the payload's fields into an array in
+ * one call, so that invoking a synthetic constructor doesn't look up and read each field by
+ * reflection. The generated class is equivalent to
+ *
+ * ```
+ * public final class generated.MyFlowPayloadExtractor implements Function {
+ *   public Object apply(Object payload) {
+ *     MyFlowPayload p = (MyFlowPayload) payload;
+ *     return new Object[] { p.first, Integer.valueOf(p.second), null, ... };
+ *   }
+ * }
+ * ```
+ */
+internal object PayloadExtractor {
+  private val logger = loggerFor<PayloadExtractor>()
+  private const val EXTRACTOR_CLASS_SUFFIX = "Extractor"
+
+  /**
+   * @param fieldNames the name of the field of [payloadClass] for each element of the
+   * extracted array, or null to leave that element null
+   * @return the extractor, defined alongside [payloadClass] if it doesn't already exist there
+   */
+  fun create(payloadClass: Class<*>, fieldNames: List<String?>): Function<Any, Array<Any?>> {
+    val className = payloadClass.name + EXTRACTOR_CLASS_SUFFIX
+    val classLoader = payloadClass.classLoader
+    val extractorClass = synchronized(this) {
+      try {
+        classLoader.loadClass(className)
+      } catch (err: ClassNotFoundException) {
+        val bytes = build(payloadClass, className, fieldNames)
+        logger.debug("defining payload extractor $className")
+        ClassFromParametersBuilder.defineClassMethod.invoke(classLoader, className, bytes, 0, bytes.size)
+        classLoader.loadClass(className)
+      }
+    }
+    @Suppress("UNCHECKED_CAST")
+    return extractorClass.getDeclaredConstructor().newInstance() as Function<Any, Array<Any?>>
+  }
+
+  private fun build(payloadClass: Class<*>, className: String, fieldNames: List<String?>): ByteArray {
+    val payloadType = AsmType.getInternalName(payloadClass)
+    return ClassWriter(ClassWriter.COMPUTE_MAXS).apply {
+      visit(
+        Opcodes.V1_8,
+        Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SUPER,
+        className.replace('.', '/'),
+        null,
+        AsmType.getInternalName(Any::class.java),
+        arrayOf(AsmType.getInternalName(Function::class.java))
+      )
+      writeDefaultConstructor()
+      visitMethod(
+        Opcodes.ACC_PUBLIC,
+        "apply",
+        "(Ljava/lang/Object;)Ljava/lang/Object;",
+        null,
+        null
+      ).apply {
+        visitCode()
+        visitVarInsn(Opcodes.ALOAD, 1)
+        visitTypeInsn(Opcodes.CHECKCAST, payloadType)
+        visitVarInsn(Opcodes.ASTORE, 2)
+        visitLdcInsn(fieldNames.size)
+        visitTypeInsn(Opcodes.ANEWARRAY, AsmType.getInternalName(Any::class.java))
+        fieldNames.forEachIndexed { index, fieldName ->
+          if (fieldName != null) {
+            val fieldType = payloadClass.getField(fieldName).type
+            visitInsn(Opcodes.DUP)
+            visitLdcInsn(index)
+            visitVarInsn(Opcodes.ALOAD, 2)
+            visitFieldInsn(Opcodes.GETFIELD, payloadType, fieldName, AsmType.getDescriptor(fieldType))
+            if (fieldType.isPrimitive) {
+              val boxedType = fieldType.kotlin.javaObjectType
+              visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                AsmType.getInternalName(boxedType),
+                "valueOf",
+                "(${AsmType.getDescriptor(fieldType)})${AsmType.getDescriptor(boxedType)}",
+                false
+              )
+            }
+            visitInsn(Opcodes.AASTORE)
+          }
+        }
+        visitInsn(Opcodes.ARETURN)
+        visitMaxs(0, 0)
+        visitEnd()
+      }
+      visitEnd()
+    }.toByteArray()
+  }
+}
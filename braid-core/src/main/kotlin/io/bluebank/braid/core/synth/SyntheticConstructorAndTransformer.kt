@@ -48,17 +48,26 @@ class SyntheticConstructorAndTransformer<K : Any, R>(
   companion object {
     private val logger = loggerFor<ClassLogger>()
 
+    /**
+     * the parameters of [constructor] that are fields of its payload class, i.e. those that
+     * are not bound to a value of one of [boundTypes]
+     */
+    fun payloadParameters(constructor: Constructor<*>, boundTypes: Map<Class<*>, Any>): List<Parameter> =
+      constructor.parameters.filter { !boundTypes.contains(it.type) }
+
     fun acquirePayloadClass(
       constructor: Constructor<*>,
       boundTypes: Map<Class<*>, Any>,
       classLoader: ClassLoader,
       className: String
     ): Class<*> {
-      val parameters = constructor.parameters.filter { !boundTypes.contains(it.type) }
+      val parameters = payloadParameters(constructor, boundTypes)
       val clazz = ClassFromParametersBuilder.acquireClass(
         parameters.toTypedArray(),
         classLoader,
-        className
+        className,
+        // a payload class generated at build time sits alongside the constructor's class
+        constructor.declaringClass.classLoader
       )
       if (false) {
         // this doesn't work, I don't know why; is it a class loader issue
@@ -82,8 +91,7 @@ class SyntheticConstructorAndTransformer<K : Any, R>(
 
     return tryWithClassLoader(classLoader) {
       // get the constructor parameter values
-      val parameterValues =
-        constructor.parameters.map { getFieldValue(constructorParam, it) }
+      val parameterValues = parameterValues(constructorParam)
       // prepent the additional parameters (if any) again
       val allParams = (additionalParamArgs + parameterValues).toTypedArray()
       transformer(allParams)
@@ -129,6 +137,28 @@ class SyntheticConstructorAndTransformer<K : Any, R>(
     return invoke(args.values.first()!!)
   }
 
+  // copies the payload fields for the constructor parameters that aren't bound
+  private val extractor by lazy {
+    PayloadExtractor.create(
+      payloadClass,
+      constructor.parameters.map { if (boundTypes.contains(it.type)) null else it.name }
+    )
+  }
+
+  private fun parameterValues(payload: Any): List<Any?> {
+    if (!payloadClass.isInstance(payload)) {
+      return constructor.parameters.map { getFieldValue(payload, it) }
+    }
+    val values = extractor.apply(payload)
+    constructor.parameters.forEachIndexed { index, parameter ->
+      values[index] = when {
+        boundTypes.contains(parameter.type) -> boundTypes[parameter.type]
+        else -> values[index] ?: error("field ${parameter.name} missing in payload $payload")
+      }
+    }
+    return values.asList()
+  }
+
   private fun getFieldValue(payload: Any, parameter: Parameter): Any? {
     return when {
       boundTypes.contains(parameter.type) -> boundTypes[parameter.type]
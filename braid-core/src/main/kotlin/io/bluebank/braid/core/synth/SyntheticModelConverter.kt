@@ -30,6 +30,7 @@ import io.swagger.v3.oas.models.media.Schema
 import java.io.IOException
 import java.lang.reflect.Parameter
 import java.lang.reflect.Type
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.reflect.KClass
 
 // used to get property type name from QualifiedTypeNameConverter
@@ -49,7 +50,7 @@ class SyntheticModelConverter(val typeNames: TypeNames) : ModelConverter {
 
   companion object {
     private val log = loggerFor<SyntheticModelConverter>()
-    private val syntheticClasses: MutableMap<String, Registered> = mutableMapOf()
+    private val syntheticClasses: MutableMap<String, Registered> = ConcurrentHashMap()
 
     fun registerClass(
       className: String,
@@ -20,6 +20,7 @@ import java.io.File
 import java.net.URI
 import java.net.URL
 import java.net.URLClassLoader
+import java.security.MessageDigest
 
 object PathsClassLoader {
       var log = loggerFor<PathsClassLoader>()
@@ -37,11 +38,37 @@ object PathsClassLoader {
           urlOrFiles(it)
         }.flatMap { it.asSequence() }.toList().toTypedArray()
         log.info("Using jars:${urls.toList()}")
-        URLClassLoader(urls, Thread.currentThread().contextClassLoader)
+        JarsClassLoader(urls, Thread.currentThread().contextClassLoader)
       }
     }
   }
 
+  /**
+   * @return a hex SHA-256 digest of the names and contents, in order, of the jars of a
+   * [classLoader] created by [jarsClassLoader], or null for any other class loader, or if any
+   * of its jars is not a local file
+   */
+  fun jarsHash(classLoader: ClassLoader): String? {
+    if (classLoader !is JarsClassLoader) return null
+    if (classLoader.urLs.any { it.protocol != "file" }) return null
+    val digest = MessageDigest.getInstance("SHA-256")
+    val buffer = ByteArray(64 * 1024)
+    classLoader.urLs.forEach { url ->
+      digest.update(url.path.substringAfterLast('/').toByteArray())
+      url.openStream().use { input ->
+        var read = input.read(buffer)
+        while (read >= 0) {
+          digest.update(buffer, 0, read)
+          read = input.read(buffer)
+        }
+      }
+    }
+    return digest.digest().joinToString("") { "%02x".format(it) }
+  }
+
+  private class JarsClassLoader(urls: Array<URL>, parent: ClassLoader) :
+    URLClassLoader(urls, parent)
+
   private fun urlOrFiles(urlOrFileName: String): List<URL> {
     return try {
       // attempt to download the file if available
@@ -55,8 +82,9 @@ object PathsClassLoader {
   private fun localFiles(directoryOrFile: File): List<URL> {
     return when {
       !directoryOrFile.exists() -> emptyList() // if the file doesn't exist we return an emptyList
-      directoryOrFile.isDirectory -> directoryOrFile.listFiles()?.map { localFiles(it) }?.flatten()
-        ?: emptyList()
+      // sorted, so that the class path and its hash don't depend on the order of the listing
+      directoryOrFile.isDirectory -> directoryOrFile.listFiles()?.sortedBy { it.name }
+        ?.map { localFiles(it) }?.flatten() ?: emptyList()
       else -> listOf(directoryOrFile.toURI().toURL())
     }
   }
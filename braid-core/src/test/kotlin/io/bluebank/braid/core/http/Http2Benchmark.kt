@@ -0,0 +1,133 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.http
+
+import io.bluebank.braid.core.async.catch
+import io.bluebank.braid.core.async.onSuccess
+import io.bluebank.braid.core.json.BraidJacksonInit
+import io.bluebank.braid.core.logging.loggerFor
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Future
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpClient
+import io.vertx.core.http.HttpClientOptions
+import io.vertx.core.http.HttpServerOptions
+import io.vertx.core.http.HttpVersion
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Fires the same burst of parallel requests at one endpoint over HTTP/1.1 and over h2c,
+ * and logs the request rate achieved by each protocol. Run with `mvn test -Pbenchmarks`.
+ */
+@RunWith(VertxUnitRunner::class)
+class Http2Benchmark {
+
+  companion object {
+    private val log = loggerFor<Http2Benchmark>()
+    private const val REQUESTS = 2_000
+    private const val HTTP1_CONNECTIONS = 8
+
+    init {
+      BraidJacksonInit.init()
+    }
+  }
+
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private val httpServer = vertx.createHttpServer(HttpServerOptions().withHttp2())
+    .requestHandler(Router.router(vertx).apply {
+      get("/person").handler { it.end(Person("fred")) }
+    })
+
+  private val http1Client = createClient(
+    HttpClientOptions()
+      .setProtocolVersion(HttpVersion.HTTP_1_1)
+      .setMaxPoolSize(HTTP1_CONNECTIONS)
+  )
+
+  private val http2Client = createClient(
+    HttpClientOptions()
+      .setProtocolVersion(HttpVersion.HTTP_2)
+      .setHttp2ClearTextUpgrade(false)
+      .setHttp2MaxPoolSize(1)
+  )
+
+  @Before
+  fun before(context: TestContext) {
+    httpServer.listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    http1Client.close()
+    http2Client.close()
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `measure a burst of parallel requests over http2 and http1_1`(context: TestContext) {
+    val async = context.async()
+    measure(http1Client, HttpVersion.HTTP_1_1)
+      .compose { http1Rate ->
+        measure(http2Client, HttpVersion.HTTP_2).map { http2Rate -> http1Rate to http2Rate }
+      }
+      .onSuccess { (http1Rate, http2Rate) ->
+        log.info("$REQUESTS requests - HTTP/1.1 ($HTTP1_CONNECTIONS connections): ${http1Rate.toInt()} req/s, HTTP/2 (1 connection): ${http2Rate.toInt()} req/s")
+        async.complete()
+      }
+      .catch { context.fail(it) }
+  }
+
+  private fun createClient(options: HttpClientOptions): HttpClient {
+    return vertx.createHttpClient(
+      options
+        .setDefaultHost("localhost")
+        .setDefaultPort(port)
+        .setKeepAlive(true)
+    )
+  }
+
+  private fun measure(client: HttpClient, version: HttpVersion): Future<Double> {
+    val result = Future.future<Double>()
+    val remaining = AtomicInteger(REQUESTS)
+    val start = System.nanoTime()
+    repeat(REQUESTS) {
+      client.get("/person") { response ->
+        when {
+          response.version() != version -> result.tryFail("expected $version but got ${response.version()}")
+          response.statusCode() != 200 -> result.tryFail("request failed with ${response.statusCode()}")
+          else -> response.bodyHandler {
+            if (remaining.decrementAndGet() == 0) {
+              val elapsed = System.nanoTime() - start
+              result.tryComplete(REQUESTS * TimeUnit.SECONDS.toNanos(1).toDouble() / elapsed)
+            }
+          }
+        }
+      }
+        .exceptionHandler { result.tryFail(it) }
+        .end()
+    }
+    return result
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.http
+
+import io.bluebank.braid.core.json.BraidJacksonInit
+import io.bluebank.braid.core.socket.findFreePort
+import io.vertx.core.Vertx
+import io.vertx.core.http.HttpClientOptions
+import io.vertx.core.http.HttpServerOptions
+import io.vertx.core.http.HttpVersion
+import io.vertx.ext.unit.TestContext
+import io.vertx.ext.unit.junit.VertxUnitRunner
+import io.vertx.ext.web.Router
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+@RunWith(VertxUnitRunner::class)
+class Http2Test {
+
+  companion object {
+    init {
+      BraidJacksonInit.init()
+    }
+  }
+
+  private val vertx = Vertx.vertx()
+  private val port = findFreePort()
+  private val httpServer = vertx.createHttpServer(HttpServerOptions().withHttp2())
+    .requestHandler(Router.router(vertx).apply {
+      get("/person").handler { it.end(Person("fred")) }
+    })
+
+  @Before
+  fun before(context: TestContext) {
+    httpServer.listen(port, context.asyncAssertSuccess())
+  }
+
+  @After
+  fun after(context: TestContext) {
+    vertx.close(context.asyncAssertSuccess())
+  }
+
+  @Test
+  fun `that h2c is negotiated by prior knowledge`(context: TestContext) {
+    // the client upgrades from http/1.1 by default
+    get(
+      context,
+      HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2).setHttp2ClearTextUpgrade(false),
+      HttpVersion.HTTP_2
+    )
+  }
+
+  @Test
+  fun `that h2c is negotiated by upgrade`(context: TestContext) {
+    get(
+      context,
+      HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2).setHttp2ClearTextUpgrade(true),
+      HttpVersion.HTTP_2
+    )
+  }
+
+  @Test
+  fun `that http1_1 clients are still served`(context: TestContext) {
+    get(context, HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_1_1), HttpVersion.HTTP_1_1)
+  }
+
+  @Test
+  fun `that alpn is only used over tls and the http2 settings are applied`() {
+    val plain = HttpServerOptions().withHttp2(maxConcurrentStreams = 10, initialWindowSize = 1024, connectionWindowSize = 4096)
+    assertFalse(plain.isUseAlpn)
+    assertEquals(10L, plain.initialSettings.maxConcurrentStreams)
+    assertEquals(1024, plain.initialSettings.initialWindowSize)
+    assertEquals(4096, plain.http2ConnectionWindowSize)
+    assertTrue(HttpServerOptions().setSsl(true).withHttp2().isUseAlpn)
+  }
+
+  private fun get(context: TestContext, options: HttpClientOptions, expected: HttpVersion) {
+    val async = context.async()
+    val client = vertx.createHttpClient(options.setDefaultHost("localhost").setDefaultPort(port))
+    client.get("/person") { response ->
+      context.assertEquals(expected, response.version())
+      context.assertEquals(200, response.statusCode())
+      response.bodyHandler {
+        context.assertEquals(Person("fred"), it.toJsonObject().mapTo(Person::class.java))
+        client.close()
+        async.complete()
+      }
+    }
+      .exceptionHandler { context.fail(it) }
+      .end()
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.json
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.bluebank.braid.core.jsonrpc.JsonRPCRequest
+import io.bluebank.braid.core.logging.loggerFor
+import org.junit.Test
+
+/**
+ * Encodes and decodes the same values with the braid mapper and with a copy of it that
+ * generates its serializers and deserializers with afterburner, and logs the rate of each.
+ * Run with `mvn test -Pbenchmarks`.
+ */
+class AfterburnerBenchmark {
+
+  companion object {
+    private val log = loggerFor<AfterburnerBenchmark>()
+    private const val WARMUP = 10_000
+    private const val ITERATIONS = 100_000
+
+    init {
+      BraidJacksonInit.init()
+    }
+  }
+
+  // built afresh, as the braid mappers carry afterburner when it is enabled
+  private val reflective = BraidJacksonInit.configure(ObjectMapper(), afterburner = false)
+  private val afterburner = BraidJacksonInit.configure(ObjectMapper(), afterburner = true)
+
+  private val customer = Customer(
+    1, "fred", "fred@example.com", true, 100.5, listOf("gold", "early"),
+    Address("1 Main Street", "London", "E1 1AA")
+  )
+  private val request = JsonRPCRequest(id = 1, method = "add", params = listOf(1, 2))
+
+  @Test
+  fun `measure afterburner against reflection`() {
+    listOf(customer, request).forEach { value ->
+      val reflectiveRate = measure { reflective.roundTrip(value) }
+      val afterburnerRate = measure { afterburner.roundTrip(value) }
+      log.info("$ITERATIONS encode/decode of ${value.javaClass.simpleName} - reflection: ${reflectiveRate.toInt()} ops/s, afterburner: ${afterburnerRate.toInt()} ops/s")
+    }
+  }
+
+  private fun <T : Any> ObjectMapper.roundTrip(value: T): T =
+    readValue(writeValueAsBytes(value), value.javaClass)
+
+  private fun measure(fn: () -> Any): Double {
+    repeat(WARMUP) { fn() }
+    val start = System.nanoTime()
+    repeat(ITERATIONS) { fn() }
+    val elapsed = System.nanoTime() - start
+    return ITERATIONS * 1_000_000_000.0 / elapsed
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.json
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule
+import io.bluebank.braid.core.jsonrpc.JsonRPCRequest
+import io.vertx.core.json.Json
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+data class Address(val street: String, val city: String, val postcode: String)
+
+data class Customer(
+  val id: Long,
+  val name: String,
+  val email: String,
+  val active: Boolean,
+  val balance: Double,
+  val tags: List<String>,
+  val address: Address
+)
+
+class AfterburnerTest {
+
+  companion object {
+    init {
+      BraidJacksonInit.init()
+    }
+  }
+
+  private val afterburnerModuleId = AfterburnerModule().typeId
+
+  private val customer = Customer(
+    1, "fred", "fred@example.com", true, 100.5, listOf("gold", "early"),
+    Address("1 Main Street", "London", "E1 1AA")
+  )
+  private val request = JsonRPCRequest(id = 1, method = "add", params = listOf(1, 2))
+
+  @Test
+  fun `that afterburner is registered on the braid mappers only when enabled`() {
+    listOf(Json.mapper, Json.prettyMapper).forEach { mapper ->
+      assertEquals(
+        BraidJacksonInit.isAfterburnerEnabled,
+        afterburnerModuleId in mapper.registeredModuleIds
+      )
+    }
+  }
+
+  @Test
+  fun `that afterburner encodes and decodes the same as reflection`() {
+    // built afresh, as the braid mappers carry afterburner when it is enabled
+    val reflective = BraidJacksonInit.configure(ObjectMapper(), afterburner = false)
+    val afterburner = BraidJacksonInit.configure(ObjectMapper(), afterburner = true)
+    assertFalse(afterburnerModuleId in reflective.registeredModuleIds)
+    assertTrue(afterburnerModuleId in afterburner.registeredModuleIds)
+
+    assertEquals(reflective.writeValueAsString(customer), afterburner.writeValueAsString(customer))
+    assertEquals(reflective.writeValueAsString(request), afterburner.writeValueAsString(request))
+    assertEquals(customer, afterburner.roundTrip(customer))
+    assertEquals(request, afterburner.roundTrip(request))
+  }
+
+  private fun <T : Any> ObjectMapper.roundTrip(value: T): T =
+    readValue(writeValueAsBytes(value), value.javaClass)
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.jsonrpc
+
+import io.bluebank.braid.core.async.getOrThrow
+import io.bluebank.braid.core.jsonrpc.JsonRPCError.Companion.RATE_LIMITED
+import io.bluebank.braid.core.ratelimit.RateLimit
+import io.bluebank.braid.core.ratelimit.RateLimiter
+import io.bluebank.braid.core.service.ConcreteServiceExecutor
+import io.bluebank.braid.core.socket.NonBlockingSocket
+import io.vertx.core.Vertx
+import org.junit.After
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class JsonRPCRateLimitTest {
+
+  private val vertx = Vertx.vertx()
+  private val service = ControlledService()
+  private val socket = InvocableMockSocket()
+
+  init {
+    val nonBlocking = NonBlockingSocket<JsonRPCRequest, JsonRPCResponse>(vertx).apply {
+      socket.addListener(this)
+    }
+    val limiter = RateLimiter(RateLimit(permitsPerSecond = 0.5, capacity = 1))
+    JsonRPCMounter(ConcreteServiceExecutor(service), vertx, limiter)
+      .apply { nonBlocking.addListener(this) }
+  }
+
+  @After
+  fun after() {
+    socket.end()
+    vertx.close()
+  }
+
+  @Test
+  fun `that a request over the limit is refused with the time to retry`() {
+    assertEquals("result", socket.invoke(service::doSomething))
+
+    val id = socket.nextId()
+    val error = assertFailsWith<JsonRPCException> { socket.invoke<String>(id, "doSomething") }
+    assertEquals(id, error.response.id)
+    assertEquals(RATE_LIMITED, error.response.error.code)
+    assertEquals(mapOf("retryAfter" to 2L), error.response.error.data)
+
+    // other operations have their own allowance
+    assertEquals("result", socket.invoke(service::doSomethingAsync).getOrThrow())
+  }
+}
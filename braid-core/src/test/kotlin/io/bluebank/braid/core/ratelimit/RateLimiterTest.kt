@@ -0,0 +1,71 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.ratelimit
+
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class RateLimiterTest {
+  private var now = 0L
+  private val clock = { now }
+
+  @Test
+  fun `that a bucket allows a burst up to capacity and then refills at the sustained rate`() {
+    val bucket = TokenBucket(RateLimit(permitsPerSecond = 10.0, capacity = 3), clock)
+    repeat(3) { assertEquals(0L, bucket.tryAcquire()) }
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryAcquire())
+
+    now += TimeUnit.MILLISECONDS.toNanos(100)
+    assertEquals(0L, bucket.tryAcquire())
+    assertTrue(bucket.tryAcquire() > 0)
+
+    now += TimeUnit.SECONDS.toNanos(1)
+    assertTrue(bucket.isIdle)
+  }
+
+  @Test
+  fun `that callers and operations have their own buckets`() {
+    val limiter = RateLimiter(RateLimit(permitsPerSecond = 0.5, capacity = 1), clock = clock)
+    assertEquals(0L, limiter.tryAcquire("alice", "vault"))
+    assertEquals(2L, limiter.tryAcquire("alice", "vault"))
+    assertEquals(0L, limiter.tryAcquire("alice", "network"))
+    assertEquals(0L, limiter.tryAcquire("bob", "vault"))
+    assertEquals(0L, limiter.tryAcquire(null, "vault"))
+
+    val error = assertFailsWith<RateLimitExceededException> { limiter.acquire("bob", "vault") }
+    assertEquals(2L, error.retryAfterSeconds)
+  }
+
+  @Test
+  fun `that idle buckets are discarded at most once per refill interval`() {
+    val limiter = RateLimiter(RateLimit(permitsPerSecond = 1.0, capacity = 2), maxIdleBuckets = 2, clock = clock)
+    listOf("alice", "bob", "carol").forEach { limiter.tryAcquire(it, "vault") }
+    assertEquals(3, limiter.bucketCount)
+
+    // every bucket is idle again, but the interval since the limiter was created hasn't passed
+    now += TimeUnit.MILLISECONDS.toNanos(1_999)
+    limiter.tryAcquire("dave", "vault")
+    assertEquals(4, limiter.bucketCount)
+
+    now += TimeUnit.MILLISECONDS.toNanos(1)
+    limiter.tryAcquire("erin", "vault")
+    // only dave, who called a moment ago, is kept alongside erin
+    assertEquals(2, limiter.bucketCount)
+  }
+}
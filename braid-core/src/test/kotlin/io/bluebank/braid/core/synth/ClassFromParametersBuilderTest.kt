@@ -25,8 +25,12 @@ import org.junit.Test
 import java.lang.reflect.Constructor
 import java.lang.reflect.Field
 import java.lang.reflect.Modifier
+import java.net.URLClassLoader
+import java.nio.file.Files
 import javax.validation.constraints.NotNull
 import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
 import kotlin.test.assertTrue
 
 // equivalent to Corda's Amount - this module doesn't reference Corda directly hence this type
@@ -119,5 +123,46 @@ class ClassFromParametersBuilderTest {
       Assert.assertThat(notNull, notNullValue())
     }
   }
-}
 
+  @Test
+  fun `that a matching prebuilt payload type is used rather than built`() {
+    val parameters = Simple::class.java.constructors.first().parameters
+    val prebuilt = prebuiltClassLoader("prebuilt.SimplePayload", parameters)
+    val payloadClass = ClassFromParametersBuilder.acquireClass(
+      parameters,
+      ClassLoader.getSystemClassLoader(),
+      "prebuilt.SimplePayload",
+      prebuilt
+    )
+    assertSame(prebuilt, payloadClass.classLoader)
+  }
+
+  @Test
+  fun `that a prebuilt payload type that no longer matches is rebuilt`() {
+    val parameters = Simple::class.java.constructors.first().parameters
+    val prebuilt = prebuiltClassLoader(
+      "prebuilt.StalePayload",
+      MoreComplex::class.java.constructors.first().parameters
+    )
+    val payloadClass = ClassFromParametersBuilder.acquireClass(
+      parameters,
+      ClassLoader.getSystemClassLoader(),
+      "prebuilt.StalePayload",
+      prebuilt
+    )
+    assertNotSame(prebuilt, payloadClass.classLoader)
+    assertEquals(listOf("amount"), payloadClass.fields.map { it.name })
+  }
+
+  private fun prebuiltClassLoader(
+    className: String,
+    parameters: Array<java.lang.reflect.Parameter>
+  ): ClassLoader {
+    val dir = Files.createTempDirectory("payloads").toFile().apply { deleteOnExit() }
+    dir.resolve(className.replace('.', '/') + ".class").apply {
+      parentFile.mkdirs()
+      writeBytes(ClassFromParametersBuilder(parameters.toList(), className).build())
+    }
+    return URLClassLoader(arrayOf(dir.toURI().toURL()), ClassLoader.getSystemClassLoader())
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.synth
+
+import io.bluebank.braid.core.json.BraidJacksonInit
+import io.bluebank.braid.core.logging.loggerFor
+import io.vertx.core.json.Json
+import org.junit.Test
+import java.lang.reflect.Parameter
+
+/**
+ * Invokes a synthetic constructor of a flow with 12 payload fields, comparing the generated
+ * payload extractor against looking each field up by reflection, and logs the rate of each.
+ * Run with `mvn test -Pbenchmarks`.
+ */
+class PayloadExtractionBenchmark {
+
+  companion object {
+    private val log = loggerFor<PayloadExtractionBenchmark>()
+    private const val WARMUP = 20_000
+    private const val INVOCATIONS = 200_000
+
+    init {
+      BraidJacksonInit.init()
+    }
+  }
+
+  private val boundTypes = mapOf<Class<*>, Any>(ProgressTracker::class.java to ProgressTracker())
+  private val constructor = WideFlow::class.java.preferredConstructor()
+  private val fn = trampoline(constructor, boundTypes, "generated.WideFlowBenchmarkPayload") { it }
+  private val payload = Json.mapper.decodeValue(
+    """
+    {
+      "a": "a", "b": 1, "c": 2, "d": 3.0, "e": true, "f": "f", "g": ["g"], "h": 4,
+      "i": 5, "j": "j", "k": { "k": 6 }, "l": "l"
+    }
+    """,
+    fn
+  )
+
+  @Test
+  fun `measure the payload extractor against reflection`() {
+    val reflectionRate = measure { reflectiveArguments(payload) }
+    val extractorRate = measure { fn.call(payload) }
+    log.info("$INVOCATIONS invocations of ${constructor.parameterCount} parameters - reflection: ${reflectionRate.toInt()} ops/s, extractor: ${extractorRate.toInt()} ops/s")
+  }
+
+  // how the arguments were read from the payload before payload extractors
+  private fun reflectiveArguments(payload: Any): Array<Any?> {
+    return constructor.parameters.map { parameter: Parameter ->
+      boundTypes[parameter.type] ?: payload.javaClass.fields
+        .single { it.name == parameter.name }
+        .get(payload)
+    }.toTypedArray()
+  }
+
+  private fun measure(fn: () -> Any): Double {
+    repeat(WARMUP) { fn() }
+    val start = System.nanoTime()
+    repeat(INVOCATIONS) { fn() }
+    val elapsed = System.nanoTime() - start
+    return INVOCATIONS * 1_000_000_000.0 / elapsed
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2018 Royal Bank of Scotland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bluebank.braid.core.synth
+
+import io.bluebank.braid.core.json.BraidJacksonInit
+import io.vertx.core.json.Json
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class WideFlow(
+  val a: String, val b: Int, val c: Long, val d: Double, val e: Boolean, val f: String,
+  val g: List<String>, val h: Int, val i: Long, val j: String, val k: Map<String, Int>,
+  val l: Char, val progressTracker: ProgressTracker
+)
+
+class PayloadExtractionTest {
+
+  companion object {
+    init {
+      BraidJacksonInit.init()
+    }
+  }
+
+  private val progressTracker = ProgressTracker()
+  private val boundTypes = mapOf<Class<*>, Any>(ProgressTracker::class.java to progressTracker)
+  private val constructor = WideFlow::class.java.preferredConstructor()
+  private val fn = trampoline(constructor, boundTypes, "generated.WideFlowPayload") { it }
+
+  @Test
+  fun `that the payload extractor returns the constructor arguments in order`() {
+    val payload = Json.mapper.decodeValue(
+      """
+      {
+        "a": "a", "b": 1, "c": 2, "d": 3.0, "e": true, "f": "f", "g": ["g"], "h": 4,
+        "i": 5, "j": "j", "k": { "k": 6 }, "l": "l"
+      }
+      """,
+      fn
+    )
+    val extracted = fn.call(payload).toList()
+    assertEquals(
+      listOf<Any?>(
+        "a", 1, 2L, 3.0, true, "f", listOf("g"), 4, 5L, "j", mapOf("k" to 6), 'l'
+      ),
+      extracted.dropLast(1)
+    )
+    assertSame(progressTracker, extracted.last())
+  }
+
+  @Test
+  fun `that a missing payload field that is not a primitive is an error`() {
+    // primitive fields take their defaults, but nothing stands in for a missing object
+    val payload = Json.mapper.decodeValue("""{ "a": "a", "b": 1 }""", fn)
+    val error = assertFailsWith<IllegalStateException> { fn.call(payload) }
+    assertTrue(error.message!!.startsWith("field f missing in payload"))
+  }
+}
@@ -15,7 +15,10 @@
  */
 package io.bluebank.braid.core.utils
 
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
 import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
 import org.junit.FixMethodOrder
 import org.junit.Test
 import org.junit.runners.MethodSorters
@@ -52,4 +55,33 @@ class PathsClassLoaderTest {
     val clazz = classLoader.loadClass("net.corda.finance.flows.CashIssueFlow")
     assertNotNull(clazz)
   }
+
+  @Test
+  fun `4 that the jars hash changes with the jar contents`() {
+    val jar = File.createTempFile("hash-", ".jar").apply { deleteOnExit() }
+    jar.writeText("one")
+    val first = PathsClassLoader.jarsHash(PathsClassLoader.jarsClassLoader(jar.path))
+    assertNotNull(first)
+    assertEquals(first, PathsClassLoader.jarsHash(PathsClassLoader.jarsClassLoader(jar.path)))
+    jar.writeText("two")
+    assertNotEquals(first, PathsClassLoader.jarsHash(PathsClassLoader.jarsClassLoader(jar.path)))
+    assertNull(PathsClassLoader.jarsHash(ClassLoader.getSystemClassLoader()))
+  }
+
+  @Test
+  fun `5 that the jars of a directory are hashed in name order`() {
+    val dir = createTempDir("jars-")
+    try {
+      val jars = listOf("c.jar", "a.jar", "b.jar").map { name ->
+        File(dir, name).apply { writeText(name) }
+      }
+      val sorted = jars.sortedBy { it.name }.map { it.path }
+      assertEquals(
+        PathsClassLoader.jarsHash(PathsClassLoader.jarsClassLoader(sorted)),
+        PathsClassLoader.jarsHash(PathsClassLoader.jarsClassLoader(dir.path))
+      )
+    } finally {
+      dir.deleteRecursively()
+    }
+  }
 }
@@ -16,13 +16,20 @@
 package io.bluebank.braid
 
 import com.typesafe.config.Config
+import io.bluebank.braid.corda.server.flow.FlowPayloadGenerator
+import io.bluebank.braid.core.utils.tryWithClassLoader
 import io.vertx.core.json.JsonArray
 import io.vertx.core.json.JsonObject
 import org.gradle.api.Plugin
 import org.gradle.api.Project
+import org.gradle.api.plugins.JavaPlugin
+import org.gradle.api.plugins.JavaPluginConvention
+import org.gradle.api.tasks.SourceSet
+import org.gradle.api.tasks.bundling.Jar
 import java.io.File
 import java.io.FileOutputStream
 import java.net.URL
+import java.net.URLClassLoader
 import java.nio.channels.Channels
 import java.nio.file.Files.copy
 import java.nio.file.StandardCopyOption.REPLACE_EXISTING
@@ -49,6 +56,49 @@ open class BraidPlugin : Plugin<Project> {
               println("Cant find:${it.absolutePath}/web-server.conf so not creating braid")
           }
         }
+
+    project.plugins.withType(JavaPlugin::class.java) {
+      addPayloadsTask(project, extension)
+    }
+  }
+
+  /**
+   * Adds the `braidPayloads` task, which generates the flow payload classes of the main
+   * source set, so that braid doesn't need to generate them when it starts. They are added
+   * to the jar if `generatePayloads` is set on the braid extension.
+   */
+  private fun addPayloadsTask(project: Project, extension: BraidPluginExtension) {
+    val main = project.convention.getPlugin(JavaPluginConvention::class.java)
+        .sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME)
+    val outputDir = File(project.buildDir, "braid-payloads")
+    val payloads = project.task("braidPayloads")
+        .dependsOn(main.classesTaskName)
+        .doLast {
+          project.delete(outputDir)
+          generatePayloads(main, outputDir)
+        }
+    payloads.inputs.files(main.runtimeClasspath)
+    payloads.outputs.dir(outputDir)
+
+    project.afterEvaluate {
+      if (extension.isGeneratePayloads) {
+        project.tasks.withType(Jar::class.java).getByName(JavaPlugin.JAR_TASK_NAME).apply {
+          dependsOn(payloads)
+          from(outputDir)
+        }
+      }
+    }
+  }
+
+  private fun generatePayloads(main: SourceSet, outputDir: File) {
+    val roots = main.output.classesDirs.files.filter { it.exists() }
+    val urls = main.runtimeClasspath.files.map { it.toURI().toURL() }.toTypedArray()
+    // braid and corda are loaded from the plugin, so the flows see the same classes as braid
+    URLClassLoader(urls, BraidPlugin::class.java.classLoader).use { classLoader ->
+      tryWithClassLoader(classLoader) {
+        FlowPayloadGenerator(classLoader).generate(roots, outputDir)
+      }
+    }
   }
 
   private fun braidProperties(config: Config): JsonObject {
@@ -4,6 +4,7 @@ public class BraidPluginExtension {
     private String version;
     private String releaseRepo = "https://repo1.maven.org/maven2";
     private String snapshotRepo = "https://repo1.maven.org/maven2";
+    private boolean generatePayloads = false;
 
     public String getVersion() {
         return version;
@@ -28,4 +29,12 @@ public class BraidPluginExtension {
     public void setSnapshotRepo(String snapshotRepo) {
         this.snapshotRepo = snapshotRepo;
     }
-}
\ No newline at end of file
+
+    public boolean isGeneratePayloads() {
+        return generatePayloads;
+    }
+
+    public void setGeneratePayloads(boolean generatePayloads) {
+        this.generatePayloads = generatePayloads;
+    }
+}
@@ -16,6 +16,7 @@
 package io.bluebank.braid.server
 
 import io.bluebank.braid.core.http.HttpServerConfig
+import io.bluebank.braid.core.http.withCompression
 import io.vertx.core.AsyncResult
 import io.vertx.core.Future.failedFuture
 import io.vertx.core.Future.succeededFuture
@@ -36,9 +37,11 @@ class JsonRPCServerBuilder {
   internal var authProvider: AuthProvider? = null
   internal var httpServerOptions: HttpServerOptions =
     HttpServerConfig.defaultServerOptions()
+  internal var compressionLevel: Int? = null
 
   companion object {
     private val logger = loggerFor<JsonRPCServerBuilder>()
+    const val DEFAULT_COMPRESSION_LEVEL = 6
     /**
      * main entry point to setup a builder
      * following this, call the fluent api to setup options of the builder
@@ -111,6 +114,16 @@ class JsonRPCServerBuilder {
     return this
   }
 
+  /**
+   * compress SockJS HTTP transports and websocket messages at [level] (1-9)
+   * default: no compression
+   */
+  fun withCompression(level: Int = DEFAULT_COMPRESSION_LEVEL): JsonRPCServerBuilder {
+    require(level in 1..9) { "compression level must be between 1 and 9 but was $level" }
+    this.compressionLevel = level
+    return this
+  }
+
   /**
    * build the server
    * don't forget to start the server using [JsonRPCServerBuilder.build]
@@ -156,6 +169,7 @@ class JsonRPCServer private constructor(private val builder: JsonRPCServerBuilde
   fun start(callback: (AsyncResult<Void>) -> Unit) {
     if (deploymentId == null) {
       with(builder) {
+        compressionLevel?.let { httpServerOptions.withCompression(it) }
         vertx!!.deployVerticle(
           JsonRPCVerticle(
             rootPath,